@@ -0,0 +1,280 @@
+package com.victorcov.worker.benchmark;
+
+import static org.mockito.Mockito.*;
+
+import com.victorcov.worker.client.ClientApiClient;
+import com.victorcov.worker.config.KafkaConfig;
+import com.victorcov.worker.consumer.OrderConsumer;
+import com.victorcov.worker.entity.Client;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.repository.OrderRepository;
+import com.victorcov.worker.service.ClientService;
+import com.victorcov.worker.service.OrderDeduplicator;
+import com.victorcov.worker.service.OrderMetrics;
+import com.victorcov.worker.service.OrderService;
+import com.victorcov.worker.service.OrderTrace;
+import com.victorcov.worker.service.OrderWriteBehindBuffer;
+import com.victorcov.worker.service.ProductService;
+import com.victorcov.worker.service.RetryBackoff;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Platform vs virtual listener threads (worker.virtual-threads.enabled) with 10k orders in flight, through the
+// listener container factory from KafkaConfig at the configured concurrency (one thread per core), OrderConsumer
+// and OrderService. Only the I/O is stubbed: the broker is a MockConsumer per listener thread handing out already
+// decoded orders, and the lock, Product API and save complete after the given latencies. Dedupe is off and the
+// client status is cached after the first lookup, as in production.
+// Throughput is reported by JMH in orders/s, p50/p99 order latency is printed after every iteration.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ListenerThreadingBenchmark {
+    private static final int IN_FLIGHT_ORDERS = 10_000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"1000"})
+    private long lockRoundTripMicros;
+
+    @Param({"2000"})
+    private long productApiMicros;
+
+    @Param({"500"})
+    private long saveMicros;
+
+    private final List<BenchmarkConsumer> consumers = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> submittedAt = new ConcurrentHashMap<>();
+    private final AtomicLong orderSequence = new AtomicLong();
+    private final List<Product> products = List.of(Product.builder().productId("product-101").build());
+
+    private volatile CountDownLatch done;
+    private ConcurrentMessageListenerContainer<String, Order> container;
+    private Histogram latencies;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OrderMetrics orderMetrics = new OrderMetrics(meterRegistry);
+        int concurrency = Runtime.getRuntime().availableProcessors();
+
+        KafkaConfig kafkaConfig = new KafkaConfig();
+        ReflectionTestUtils.setField(kafkaConfig, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(kafkaConfig, "orderMetrics", orderMetrics);
+        ReflectionTestUtils.setField(kafkaConfig, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(kafkaConfig, "maxPollRecords", 10);
+        ReflectionTestUtils.setField(kafkaConfig, "listenerConcurrency", concurrency);
+        ReflectionTestUtils.setField(kafkaConfig, "virtualThreads", "virtual".equals(threads));
+
+        ConcurrentKafkaListenerContainerFactory<String, Order> factory = kafkaConfig.kafkaListenerContainerFactory();
+        factory.setConsumerFactory(new BenchmarkConsumerFactory());
+
+        OrderConsumer orderConsumer = new OrderConsumer();
+        ReflectionTestUtils.setField(orderConsumer, "orderService", orderService(meterRegistry, orderMetrics));
+
+        container = factory.createContainer(KafkaConfig.ORDERS_TOPIC);
+        container.setupMessageListener((MessageListener<String, Order>) record -> orderConsumer.consume(record.value()));
+        container.start();
+        while (consumers.size() < concurrency) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private OrderService orderService(SimpleMeterRegistry meterRegistry, OrderMetrics orderMetrics) {
+        OrderTrace orderTrace = new OrderTrace(0);
+
+        RLockReactive lock = mock(RLockReactive.class, withSettings().stubOnly());
+        when(lock.tryLock(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenReturn(Mono.delay(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(lockRoundTripMicros))).thenReturn(true));
+        when(lock.unlock(anyLong())).thenReturn(Mono.empty());
+        RedissonReactiveClient redissonReactiveClient = mock(RedissonReactiveClient.class, withSettings().stubOnly());
+        when(redissonReactiveClient.getLock(anyString())).thenReturn(lock);
+
+        Map<String, Product> catalog = Map.of("product-101",
+                Product.builder().productId("product-101").name("Laptop").price(1200.00).build());
+        ProductService productService = new ProductService() {
+            @Override
+            public Mono<Map<String, Product>> findProducts(Collection<String> productIds) {
+                return Mono.delay(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(productApiMicros))).thenReturn(catalog);
+            }
+        };
+        ReflectionTestUtils.setField(productService, "orderTrace", orderTrace);
+
+        ClientApiClient clientApiClient = mock(ClientApiClient.class, withSettings().stubOnly());
+        when(clientApiClient.findClient("customer-001"))
+                .thenReturn(Mono.just(Client.builder().customerId("customer-001").isActive(true).build()));
+        ClientService clientService = new ClientService(clientApiClient, meterRegistry, 10_000, Duration.ofHours(1), Duration.ofSeconds(10));
+
+        // The save completes the order, its latency is measured from the hand-over to the consumer
+        OrderRepository orderRepository = (OrderRepository) Proxy.newProxyInstance(OrderRepository.class.getClassLoader(),
+                new Class<?>[]{OrderRepository.class}, (proxy, method, args) -> {
+                    if (!"upsert".equals(method.getName())) {
+                        return Mono.empty();
+                    }
+                    String orderId = ((Order) args[0]).getOrderId();
+                    return Mono.delay(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(saveMicros)))
+                            .doOnNext(ignored -> completed(orderId))
+                            .then();
+                });
+
+        OrderService orderService = new OrderService();
+        ReflectionTestUtils.setField(orderService, "productService", productService);
+        ReflectionTestUtils.setField(orderService, "clientService", clientService);
+        ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(orderService, "redissonReactiveClient", redissonReactiveClient);
+        ReflectionTestUtils.setField(orderService, "orderDeduplicator", new OrderDeduplicator(null, orderRepository, false, 1, 0.5));
+        ReflectionTestUtils.setField(orderService, "orderMetrics", orderMetrics);
+        ReflectionTestUtils.setField(orderService, "orderTrace", orderTrace);
+        ReflectionTestUtils.setField(orderService, "orderWriteBehindBuffer", new OrderWriteBehindBuffer(orderRepository, meterRegistry));
+        ReflectionTestUtils.setField(orderService, "retryBackoff", new RetryBackoff(Duration.ofSeconds(1), Duration.ofMinutes(2)));
+        return orderService;
+    }
+
+    private void completed(String orderId) {
+        long latency = System.nanoTime() - submittedAt.remove(orderId);
+        synchronized (this) {
+            latencies.recordValue(latency);
+        }
+        done.countDown();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLatencies() {
+        latencies = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT_ORDERS)
+    public void processInFlightOrders() throws InterruptedException {
+        done = new CountDownLatch(IN_FLIGHT_ORDERS);
+        for (int i = 0; i < IN_FLIGHT_ORDERS; i++) {
+            Order order = Order.builder()
+                    .orderId("order-" + orderSequence.incrementAndGet())
+                    .customerId("customer-001")
+                    .products(products)
+                    .build();
+            submittedAt.put(order.getOrderId(), System.nanoTime());
+            consumers.get(i % consumers.size()).add(order);
+        }
+        done.await();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportLatencies() {
+        System.out.printf("%n%s threads: p50=%.1f ms, p99=%.1f ms, max=%.1f ms%n", threads,
+                latencies.getValueAtPercentile(50) / 1e6,
+                latencies.getValueAtPercentile(99) / 1e6,
+                latencies.getMaxValue() / 1e6);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        container.stop();
+    }
+
+    // One partition per listener thread, assigned as soon as the container subscribes
+    private class BenchmarkConsumerFactory implements ConsumerFactory<String, Order> {
+        private final AtomicInteger partitions = new AtomicInteger();
+
+        @Override
+        public Consumer<String, Order> createConsumer(String groupId, String clientIdPrefix, String clientIdSuffix,
+                                                      Properties properties) {
+            BenchmarkConsumer consumer = new BenchmarkConsumer(
+                    new TopicPartition(KafkaConfig.ORDERS_TOPIC, partitions.getAndIncrement()));
+            consumers.add(consumer);
+            return consumer;
+        }
+
+        @Override
+        public boolean isAutoCommit() {
+            return false;
+        }
+
+        @Override
+        public Map<String, Object> getConfigurationProperties() {
+            return Map.of(ConsumerConfig.GROUP_ID_CONFIG, "order_group", ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        }
+    }
+
+    private static class BenchmarkConsumer extends MockConsumer<String, Order> {
+        private final TopicPartition partition;
+        private long nextOffset;
+
+        BenchmarkConsumer(TopicPartition partition) {
+            super(OffsetResetStrategy.EARLIEST);
+            this.partition = partition;
+        }
+
+        @Override
+        public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener listener) {
+            super.subscribe(topics, listener);
+            rebalance(List.of(partition));
+            updateBeginningOffsets(Map.of(partition, 0L));
+            listener.onPartitionsAssigned(List.of(partition));
+        }
+
+        synchronized void add(Order order) {
+            addRecord(new ConsumerRecord<>(partition.topic(), partition.partition(), nextOffset++,
+                    order.getOrderId(), order));
+        }
+
+        // MockConsumer returns at once when there is nothing to fetch, wait a little like a real poll would
+        // instead of spinning the listener thread
+        @Override
+        public ConsumerRecords<String, Order> poll(Duration timeout) {
+            ConsumerRecords<String, Order> records = super.poll(timeout);
+            if (records.isEmpty()) {
+                LockSupport.parkNanos(Math.min(timeout.toNanos(), TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.victorcov.worker.benchmark;
+
+import static org.mockito.Mockito.*;
+
+import com.google.gson.Gson;
+import com.victorcov.worker.client.ClientApiClient;
+import com.victorcov.worker.entity.Client;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.repository.OrderRepository;
+import com.victorcov.worker.serialization.OrderBinaryCodec;
+import com.victorcov.worker.serialization.OrderDeserializer;
+import com.victorcov.worker.service.ClientService;
+import com.victorcov.worker.service.OrderDeduplicator;
+import com.victorcov.worker.service.OrderMetrics;
+import com.victorcov.worker.service.OrderService;
+import com.victorcov.worker.service.OrderTrace;
+import com.victorcov.worker.service.OrderWriteBehindBuffer;
+import com.victorcov.worker.service.ProductService;
+import com.victorcov.worker.service.RetryBackoff;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// CPU cost per order of the consumer path for 1 to 500 products: record decoding and validation,
+// product enrichment (with 10% of the products missing from the catalog) and the full processOrderLogic
+// with in-memory dependencies, so only our own code and Reactor are measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderPipelineBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    private int products;
+
+    private final OrderDeserializer deserializer = new OrderDeserializer();
+
+    private byte[] jsonRecord;
+    private byte[] binaryRecord;
+    private Order order;
+    private Map<String, Product> catalog;
+    private ProductService productService;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Product> requested = new ArrayList<>(products);
+        catalog = new HashMap<>();
+        for (int i = 0; i < products; i++) {
+            String productId = "product-" + i;
+            requested.add(Product.builder().productId(productId).build());
+            // Every tenth product is unknown to the catalog, except for single product orders
+            if (products == 1 || i % 10 != 9) {
+                catalog.put(productId, Product.builder().productId(productId).name("Product " + i).price(10.0 + i).build());
+            }
+        }
+        order = Order.builder().orderId("order-009").customerId("customer-001").products(requested).build();
+        jsonRecord = new Gson().toJson(order).getBytes(StandardCharsets.UTF_8);
+        binaryRecord = OrderBinaryCodec.encode(order);
+
+        OrderTrace orderTrace = new OrderTrace(0);
+        productService = new ProductService() {
+            @Override
+            public Mono<Map<String, Product>> findProducts(Collection<String> productIds) {
+                return Mono.just(catalog);
+            }
+        };
+        ReflectionTestUtils.setField(productService, "orderTrace", orderTrace);
+
+        // Only the first lookup reaches the Client API, the status is cached afterwards
+        ClientApiClient clientApiClient = mock(ClientApiClient.class);
+        when(clientApiClient.findClient("customer-001"))
+                .thenReturn(Mono.just(Client.builder().customerId("customer-001").isActive(true).build()));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ClientService clientService = new ClientService(clientApiClient, meterRegistry, 10_000, Duration.ofHours(1), Duration.ofSeconds(10));
+
+        OrderRepository orderRepository = (OrderRepository) Proxy.newProxyInstance(OrderRepository.class.getClassLoader(),
+                new Class<?>[]{OrderRepository.class}, (proxy, method, args) -> Mono.empty());
+
+        orderService = new OrderService();
+        ReflectionTestUtils.setField(orderService, "productService", productService);
+        ReflectionTestUtils.setField(orderService, "clientService", clientService);
+        ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(orderService, "orderDeduplicator", new OrderDeduplicator(null, orderRepository, false, 1, 0.5));
+        ReflectionTestUtils.setField(orderService, "orderMetrics", new OrderMetrics(meterRegistry));
+        ReflectionTestUtils.setField(orderService, "orderTrace", orderTrace);
+        ReflectionTestUtils.setField(orderService, "orderWriteBehindBuffer", new OrderWriteBehindBuffer(orderRepository, meterRegistry));
+        ReflectionTestUtils.setField(orderService, "retryBackoff", new RetryBackoff(Duration.ofSeconds(1), Duration.ofMinutes(2)));
+    }
+
+    @Benchmark
+    public Order deserializeJson() {
+        return deserializer.deserialize("orders_topic", jsonRecord);
+    }
+
+    @Benchmark
+    public Order deserializeBinary() {
+        return OrderBinaryCodec.decode(binaryRecord);
+    }
+
+    @Benchmark
+    public Order applyProducts() {
+        return productService.applyProducts(copyOfOrder(), catalog).block();
+    }
+
+    @Benchmark
+    public void processOrderLogic() {
+        orderService.processOrderLogic(copyOfOrder()).block();
+    }
+
+    // applyProducts replaces the product list, so every invocation works on a fresh copy
+    private Order copyOfOrder() {
+        return Order.builder()
+                .orderId(order.getOrderId())
+                .customerId(order.getCustomerId())
+                .products(order.getProducts())
+                .build();
+    }
+}
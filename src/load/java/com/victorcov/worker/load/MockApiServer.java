@@ -0,0 +1,95 @@
+package com.victorcov.worker.load;
+
+import com.google.gson.Gson;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Stand-in for the Product and Client APIs with a fixed latency and a share of 503 responses
+final class MockApiServer {
+    private static final Gson gson = new Gson();
+
+    private final DisposableServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private MockApiServer(String name, Duration latency, double errorRate, boolean products) {
+        this.server = HttpServer.create()
+                .port(0)
+                .compress(true)
+                .route(routes -> {
+                    if (products) {
+                        routes.get("/products/by-ids", (request, response) -> respond(response, latency, errorRate,
+                                () -> productsJson(new QueryStringDecoder(request.uri()).parameters().get("ids"))));
+                    } else {
+                        routes.get("/clients/{id}", (request, response) -> respond(response, latency, errorRate,
+                                () -> gson.toJson(Map.of("customerId", request.param("id"), "name", name, "active", true))));
+                    }
+                })
+                .bindNow();
+    }
+
+    static MockApiServer products(Duration latency, double errorRate) {
+        return new MockApiServer("products", latency, errorRate, true);
+    }
+
+    static MockApiServer clients(Duration latency, double errorRate) {
+        return new MockApiServer("Load Client", latency, errorRate, false);
+    }
+
+    String baseUrl(String path) {
+        return "http://localhost:" + server.port() + path;
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    void resetCounts() {
+        requests.set(0);
+        errors.set(0);
+    }
+
+    void stop() {
+        server.disposeNow();
+    }
+
+    private Mono<Void> respond(HttpServerResponse response, Duration latency, double errorRate,
+                               Supplier<String> body) {
+        requests.incrementAndGet();
+        Mono<Void> reply;
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            reply = Mono.defer(() -> response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send().then());
+        } else {
+            reply = Mono.defer(() -> response.header("Content-Type", "application/json")
+                    .sendString(Mono.just(body.get()))
+                    .then());
+        }
+        return latency.isZero() ? reply : Mono.delay(latency).then(reply);
+    }
+
+    private static String productsJson(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return "[]";
+        }
+        return gson.toJson(Arrays.stream(ids.get(0).split(","))
+                .map(id -> Map.of("productId", id, "name", "Product " + id, "price", 10.0))
+                .toList());
+    }
+}
@@ -0,0 +1,242 @@
+package com.victorcov.worker.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.victorcov.worker.config.KafkaConfig;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Replays orders through the real Spring context at a target rate and reports throughput and per-stage
+ * latency percentiles over the whole run. A warm-up run goes first so JIT compilation, connection pools, caches and
+ * circuit breakers that opened on cold-start timeouts do not end up in the report. Kafka is embedded, Mongo is in memory, Redis is a local redis-server and the APIs
+ * are MockApiServer instances, so nothing else has to be running.
+ *
+ *   mvn -Pload-test test [-D<option>=<value> ...]
+ *
+ *   load.mode                  worker.kafka.mode to test: single, batch or reactive (default reactive)
+ *   load.orders.file           JSON lines file with one order per line, generated orders are used otherwise
+ *   load.orders.count          generated orders (default 20000)
+ *   load.warmup.count          generated orders processed before the measured run, 0 to skip (default 2000)
+ *   load.products-per-order    products per generated order (default 5)
+ *   load.rate                  orders produced per second (default 2000)
+ *   load.api.latency-ms        latency of every mock API call (default 20)
+ *   load.api.error-rate        share of mock API calls answered with 503 (default 0)
+ *   load.timeout-seconds       time allowed for all orders to be saved or dead-lettered (default 300)
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+        "worker.kafka.mode=${load.mode:reactive}",
+        "worker.mongodb.authenticate=false",
+        "management.metrics.distribution.percentiles.order.stage=0.5,0.99,0.999",
+        // Client-side percentiles only cover the last 'expiry' (2 minutes by default), keep a single window
+        // that outlasts any run so the report is not just its final minutes
+        "management.metrics.distribution.expiry.order.stage=24h",
+        "management.metrics.distribution.buffer-length.order.stage=1",
+        "worker.logging.summary-interval-ms=5000"
+})
+@EmbeddedKafka(kraft = true, partitions = 8, topics = {KafkaConfig.ORDERS_TOPIC, KafkaConfig.ORDERS_DLT_TOPIC},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+public class OrderLoadTest {
+    private static final Gson gson = new Gson();
+
+    private static MongoServer mongoServer;
+    private static RedisServer redisServer;
+    private static MockApiServer productApi;
+    private static MockApiServer clientApi;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @DynamicPropertySource
+    static void environment(DynamicPropertyRegistry registry) throws IOException {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress mongoAddress = mongoServer.bind();
+        registry.add("spring.data.mongodb.host", mongoAddress::getHostString);
+        registry.add("spring.data.mongodb.port", mongoAddress::getPort);
+
+        int redisPort = freePort();
+        redisServer = new RedisServer(redisPort);
+        redisServer.start();
+        registry.add("spring.redis.host", () -> "localhost");
+        registry.add("spring.redis.port", () -> redisPort);
+        registry.add("spring.data.redis.host", () -> "localhost");
+        registry.add("spring.data.redis.port", () -> redisPort);
+
+        Duration latency = Duration.ofMillis(Long.getLong("load.api.latency-ms", 20));
+        double errorRate = Double.parseDouble(System.getProperty("load.api.error-rate", "0"));
+        productApi = MockApiServer.products(latency, errorRate);
+        clientApi = MockApiServer.clients(latency, errorRate);
+        registry.add("worker.product-api.base-url", () -> productApi.baseUrl("/products"));
+        registry.add("worker.client-api.base-url", () -> clientApi.baseUrl("/clients"));
+    }
+
+    @AfterAll
+    static void stopEnvironment() throws IOException {
+        productApi.stop();
+        clientApi.stop();
+        redisServer.stop();
+        mongoServer.shutdown();
+    }
+
+    @Test
+    public void replayOrdersAtTargetRate() throws IOException {
+        int rate = Integer.getInteger("load.rate", 2000);
+        Duration timeout = Duration.ofSeconds(Long.getLong("load.timeout-seconds", 300));
+        warmUp(rate, timeout);
+
+        List<String> orders = loadOrders();
+        long start = System.nanoTime();
+        produce(orders, rate);
+        double producedSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Every order ends up saved or, once its retries are used up, dead-lettered
+        awaitFinished(orders.size(), timeout);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        report(orders.size(), producedSeconds, elapsedSeconds);
+        assertEquals(orders.size(), finishedOrders(), "Orders not finished within " + timeout);
+    }
+
+    // Runs generated orders through the pipeline, then drops what they left behind in the meters, the mock API
+    // counters and the circuit breakers, so the measured run starts warm but with a clean slate
+    private void warmUp(int rate, Duration timeout) {
+        int count = Integer.getInteger("load.warmup.count", 2000);
+        if (count <= 0) {
+            return;
+        }
+        produce(generateOrders("warmup-", count), rate);
+        awaitFinished(count, timeout);
+        assertEquals(count, finishedOrders(), "Warm-up orders not finished within " + timeout);
+
+        // The pipeline registers these meters on first use, removed ones come back with the next order
+        List.of("order.stage", "order.processed").forEach(name ->
+                meterRegistry.find(name).meters().forEach(meterRegistry::remove));
+        productApi.resetCounts();
+        clientApi.resetCounts();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
+    }
+
+    // Produces at a steady pace, the n-th order is sent n / rate seconds after the start
+    private void produce(List<String> orders, int rate) {
+        long start = System.nanoTime();
+        for (int i = 0; i < orders.size(); i++) {
+            long dueAt = start + i * TimeUnit.SECONDS.toNanos(1) / rate;
+            long wait = dueAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String order = orders.get(i);
+            kafkaTemplate.send(KafkaConfig.ORDERS_TOPIC, gson.fromJson(order, Order.class).getOrderId(), order);
+        }
+        kafkaTemplate.flush();
+    }
+
+    private void awaitFinished(long orders, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (finishedOrders() < orders && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    private List<String> loadOrders() throws IOException {
+        String file = System.getProperty("load.orders.file");
+        if (file != null) {
+            return Files.readAllLines(Path.of(file)).stream()
+                    .filter(line -> !line.isBlank())
+                    .toList();
+        }
+        return generateOrders("load-", Integer.getInteger("load.orders.count", 20000));
+    }
+
+    private List<String> generateOrders(String orderIdPrefix, int count) {
+        int productsPerOrder = Integer.getInteger("load.products-per-order", 5);
+        List<String> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Product> products = new ArrayList<>(productsPerOrder);
+            for (int p = 0; p < productsPerOrder; p++) {
+                products.add(Product.builder().productId("product-" + ThreadLocalRandom.current().nextInt(1000)).build());
+            }
+            orders.add(gson.toJson(Order.builder()
+                    .orderId(orderIdPrefix + i)
+                    .customerId("customer-" + ThreadLocalRandom.current().nextInt(100))
+                    .products(products)
+                    .build()));
+        }
+        return orders;
+    }
+
+    private long finishedOrders() {
+        return (long) (outcomeCount("saved") + outcomeCount("max_retries_reached") + outcomeCount("duplicate"));
+    }
+
+    private double outcomeCount(String outcome) {
+        return meterRegistry.find("order.processed").tag("outcome", outcome).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private void report(int orders, double producedSeconds, double elapsedSeconds) {
+        System.out.printf("%n=== Load test: %d orders, mode %s ===%n", orders, System.getProperty("load.mode", "reactive"));
+        System.out.printf("produced   %8.0f orders/s%n", orders / producedSeconds);
+        System.out.printf("processed  %8.0f orders/s (%.1f s until the last order finished)%n", finishedOrders() / elapsedSeconds, elapsedSeconds);
+        System.out.printf("outcomes   saved=%.0f retry_scheduled=%.0f max_retries_reached=%.0f lock_not_acquired=%.0f%n",
+                outcomeCount("saved"), outcomeCount("retry_scheduled"), outcomeCount("max_retries_reached"), outcomeCount("lock_not_acquired"));
+        System.out.printf("mock APIs  products %d calls (%d errors), clients %d calls (%d errors)%n",
+                productApi.requests(), productApi.errors(), clientApi.requests(), clientApi.errors());
+        System.out.printf("%-20s %-26s %8s %10s %10s %10s%n", "stage", "outcome", "count", "p50 ms", "p99 ms", "p999 ms");
+        meterRegistry.find("order.stage").timers().stream()
+                .sorted(Comparator.comparing((Timer timer) -> timer.getId().getTag("stage"))
+                        .thenComparing(timer -> timer.getId().getTag("outcome")))
+                .forEach(timer -> {
+                    ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+                    System.out.printf("%-20s %-26s %8d %10.2f %10.2f %10.2f%n",
+                            timer.getId().getTag("stage"), timer.getId().getTag("outcome"), timer.count(),
+                            percentiles[0].value(TimeUnit.MILLISECONDS),
+                            percentiles[1].value(TimeUnit.MILLISECONDS),
+                            percentiles[2].value(TimeUnit.MILLISECONDS));
+                });
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
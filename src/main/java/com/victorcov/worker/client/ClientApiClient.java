@@ -0,0 +1,50 @@
+package com.victorcov.worker.client;
+
+import com.victorcov.worker.entity.Client;
+import com.victorcov.worker.exceptions.ClientNotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+@Slf4j
+@Component
+public class ClientApiClient {
+    private final WebClient webClient;
+    private final DependencyGuard guard;
+
+    public ClientApiClient(@Qualifier("clientApiWebClient") WebClient webClient,
+                           CircuitBreakerRegistry circuitBreakerRegistry,
+                           BulkheadRegistry bulkheadRegistry,
+                           MeterRegistry meterRegistry,
+                           @Value("${worker.client-api.timeout:2s}") Duration timeout) {
+        this.webClient = webClient;
+        this.guard = new DependencyGuard("clientApi", circuitBreakerRegistry, bulkheadRegistry, meterRegistry, timeout);
+    }
+
+    public Mono<Client> findClient(String customerId) {
+        return guard.protect(webClient.get()
+                .uri("/{id}", customerId)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().value() == 404) {
+                        log.warn("Client not found with ID: {}", customerId);
+                        return Mono.error(new ClientNotFoundException("Client not found with ID: " + customerId));
+                    }
+                    // Any other non-2xx answer is an error the circuit breaker records, never a valid client
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.createError();
+                    }
+                    return response.bodyToMono(Client.class);
+                })
+                .doOnSubscribe(subscription ->
+                        log.debug("Sending request to Client API for client ID: {}", customerId)
+                ));
+    }
+}
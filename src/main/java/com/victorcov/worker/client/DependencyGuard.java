@@ -0,0 +1,51 @@
+package com.victorcov.worker.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Wraps calls to one downstream API with a per-call timeout, a concurrency bulkhead and a circuit breaker
+public class DependencyGuard {
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration timeout;
+
+    public DependencyGuard(String name,
+                           CircuitBreakerRegistry circuitBreakerRegistry,
+                           BulkheadRegistry bulkheadRegistry,
+                           MeterRegistry meterRegistry,
+                           Duration timeout) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+        this.bulkhead = bulkheadRegistry.bulkhead(name);
+        this.timeout = timeout;
+
+        Counter circuitRejections = rejectionCounter(meterRegistry, name, "circuit_open");
+        Counter bulkheadRejections = rejectionCounter(meterRegistry, name, "bulkhead_full");
+        circuitBreaker.getEventPublisher().onCallNotPermitted(event -> circuitRejections.increment());
+        bulkhead.getEventPublisher().onCallRejected(event -> bulkheadRejections.increment());
+    }
+
+    // While the circuit is open or the bulkhead is full the call fails fast without being subscribed
+    public <T> Mono<T> protect(Mono<T> call) {
+        return call
+                .timeout(timeout)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String name, String reason) {
+        return Counter.builder("dependency.calls.rejected")
+                .description("Calls rejected before reaching the downstream API")
+                .tag("dependency", name)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
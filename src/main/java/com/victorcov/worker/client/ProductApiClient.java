@@ -0,0 +1,52 @@
+package com.victorcov.worker.client;
+
+import com.victorcov.worker.entity.Product;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Slf4j
+@Component
+public class ProductApiClient {
+    private final WebClient webClient;
+    private final DependencyGuard guard;
+
+    public ProductApiClient(@Qualifier("productApiWebClient") WebClient webClient,
+                            CircuitBreakerRegistry circuitBreakerRegistry,
+                            BulkheadRegistry bulkheadRegistry,
+                            MeterRegistry meterRegistry,
+                            @Value("${worker.product-api.timeout:2s}") Duration timeout) {
+        this.webClient = webClient;
+        this.guard = new DependencyGuard("productApi", circuitBreakerRegistry, bulkheadRegistry, meterRegistry, timeout);
+    }
+
+    // Fetches the given product IDs in a single call, keyed by product ID
+    public Mono<Map<String, Product>> findProducts(Collection<String> productIds) {
+        return guard.protect(webClient.get()
+                // Templated so the request metrics are tagged with the path, not with every ID list
+                .uri("/by-ids?ids={ids}", String.join(",", productIds))
+                // Any non-2xx answer is an error, so the circuit breaker records it instead of an empty catalog
+                .exchangeToFlux(response -> response.statusCode().is2xxSuccessful()
+                        ? response.bodyToFlux(Product.class)
+                        : response.<Product>createError().flux()
+                )
+                .doOnSubscribe(subscription ->
+                        log.debug("Sending request to Product API for {} products", productIds.size())
+                )
+                .collectMap(Product::getProductId, product -> product, LinkedHashMap::new)
+                .doOnSuccess(products ->
+                        log.debug("Received {} of {} requested products", products.size(), productIds.size())
+                ));
+    }
+}
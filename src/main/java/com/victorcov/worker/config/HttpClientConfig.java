@@ -0,0 +1,101 @@
+package com.victorcov.worker.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class HttpClientConfig {
+    @Value("${worker.http.max-connections:500}")
+    private int maxConnections;
+
+    @Value("${worker.http.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${worker.http.pending-acquire-timeout:2s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${worker.http.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${worker.http.max-life-time:5m}")
+    private Duration maxLifeTime;
+
+    @Value("${worker.http.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    @Value("${worker.http.response-timeout:2s}")
+    private Duration responseTimeout;
+
+    @Value("${worker.http.keep-alive:true}")
+    private boolean keepAlive;
+
+    @Value("${worker.http.http2.enabled:false}")
+    private boolean http2;
+
+    @Value("${worker.http.compression:true}")
+    private boolean compression;
+
+    @Value("${worker.product-api.base-url:http://localhost:8081/products}")
+    private String productApiBaseUrl;
+
+    @Value("${worker.client-api.base-url:http://localhost:8082/clients}")
+    private String clientApiBaseUrl;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider apiConnectionProvider() {
+        // Limits apply per remote host, so each API gets its own pool from the same settings.
+        // metrics(true) publishes reactor.netty.connection.provider.* gauges (active, idle, pending)
+        // and the pending acquire timer
+        return ConnectionProvider.builder("order-apis")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient apiHttpClient(ConnectionProvider apiConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(apiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, keepAlive)
+                .keepAlive(keepAlive)
+                .responseTimeout(responseTimeout)
+                // Sends 'Accept-Encoding: gzip' and decompresses the responses
+                .compress(compression);
+        if (http2) {
+            // Cleartext HTTP/2 multiplexes concurrent calls over a few connections, HTTP/1.1 stays as fallback
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        return httpClient;
+    }
+
+    // Built from Boot's builder so the calls also get the http.client.requests observations
+    @Bean
+    public WebClient productApiWebClient(WebClient.Builder webClientBuilder, HttpClient apiHttpClient) {
+        return webClientBuilder.clone()
+                .baseUrl(productApiBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(apiHttpClient))
+                .build();
+    }
+
+    @Bean
+    public WebClient clientApiWebClient(WebClient.Builder webClientBuilder, HttpClient apiHttpClient) {
+        return webClientBuilder.clone()
+                .baseUrl(clientApiBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(apiHttpClient))
+                .build();
+    }
+}
@@ -1,31 +1,95 @@
 package com.victorcov.worker.config;
 
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.serialization.OrderDeserializer;
+import com.victorcov.worker.service.OrderMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.CommonErrorHandler;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.util.backoff.ExponentialBackOff;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import reactor.kafka.receiver.ReceiverOptions;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
 public class KafkaConfig {
+    public static final String ORDERS_TOPIC = "orders_topic";
+    public static final String ORDERS_DLT_TOPIC = "orders_topic.DLT";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private OrderMetrics orderMetrics;
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${worker.kafka.max-poll-records:10}")
+    private int maxPollRecords;
+
+    // Listener threads per instance, each one owns a share of the assigned partitions
+    @Value("${worker.kafka.concurrency:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int listenerConcurrency;
+
+    @Value("${worker.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${worker.kafka.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value("${worker.pipeline.max-deferred-commits:1000}")
+    private int maxDeferredCommits;
+
+    @Value("${worker.pipeline.commit-interval:1s}")
+    private Duration commitInterval;
+
+    @Bean
+    public ConsumerFactory<String, Order> consumerFactory() {
+        DefaultKafkaConsumerFactory<String, Order> factory = new DefaultKafkaConsumerFactory<>(consumerProperties());
+        // Binds the consumer client metrics, records-lag-max among them, to Micrometer
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
 
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    @ConditionalOnProperty(name = "worker.kafka.mode", havingValue = "reactive")
+    public ReceiverOptions<String, Order> orderReceiverOptions() {
+        return ReceiverOptions.<String, Order>create(consumerProperties())
+                .subscription(List.of(ORDERS_TOPIC))
+                // Offsets are acknowledged out of order as orders complete, only contiguous ones get committed
+                .maxDeferredCommits(maxDeferredCommits)
+                .commitInterval(commitInterval)
+                .consumerListener(new reactor.kafka.receiver.MicrometerConsumerListener(meterRegistry));
+    }
+
+    private Map<String, Object> consumerProperties() {
         // Kafka consumer configuration settings
         Map<String, Object> props = new HashMap<>();
 
         // Define Kafka broker address
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
 
         // Define consumer group ID
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "order_group");
@@ -34,7 +98,7 @@ public class KafkaConfig {
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
 
         // Maximum records to fetch in a single poll
-        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
 
         // Set the offset reset to earliest, in case there are no committed offsets
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
@@ -42,16 +106,23 @@ public class KafkaConfig {
         // Set the deserializers for keys and values
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, StringDeserializer.class);
+        // Orders are read and validated straight from the record bytes, invalid ones arrive as null
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, OrderDeserializer.class);
         props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
 
-        return new DefaultKafkaConsumerFactory<>(props);
+        return props;
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public ConcurrentKafkaListenerContainerFactory<String, Order> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Order> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(listenerConcurrency);
+        configureListenerExecutor(factory);
+        factory.setRecordInterceptor((record, consumer) -> {
+            orderMetrics.recordReceived(record.timestamp());
+            return record;
+        });
 
         // Set up the error handler for retries
         factory.setCommonErrorHandler(commonErrorHandler());
@@ -62,6 +133,57 @@ public class KafkaConfig {
         return factory;
     }
 
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Order> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Order> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(listenerConcurrency);
+        configureListenerExecutor(factory);
+        factory.setBatchInterceptor((records, consumer) -> {
+            records.forEach(record -> orderMetrics.recordReceived(record.timestamp()));
+            return records;
+        });
+
+        // Deliver the whole poll to the listener so orders can be written in bulk
+        factory.setBatchListener(true);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchMaxPollRecords));
+
+        factory.setCommonErrorHandler(commonErrorHandler());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+
+        return factory;
+    }
+
+    private void configureListenerExecutor(ConcurrentKafkaListenerContainerFactory<String, Order> factory) {
+        if (virtualThreads) {
+            // Poll loops, commits and listeners waiting on locks or bulk writes park a virtual thread
+            // instead of holding a platform thread for the whole wait
+            factory.getContainerProperties().setListenerTaskExecutor(new VirtualThreadTaskExecutor("order-listener-"));
+        }
+    }
+
+    @Bean
+    public ProducerFactory<String, String> producerFactory() {
+        // Kafka producer configuration settings
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+
+        // Wait for all in-sync replicas and avoid duplicates on producer retries
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+
     @Bean
     public CommonErrorHandler commonErrorHandler() {
         // Create an exponential back-off for retries
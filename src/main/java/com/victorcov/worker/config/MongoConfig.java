@@ -1,19 +1,37 @@
 package com.victorcov.worker.config;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.MongoServerException;
+import com.mongodb.WriteConcern;
 import com.mongodb.reactivestreams.client.MongoClient;
 import com.mongodb.reactivestreams.client.MongoClients;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.config.AbstractReactiveMongoConfiguration;
+import org.springframework.data.mongodb.util.MongoDbErrorCodes;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Configuration
 public class MongoConfig extends AbstractReactiveMongoConfiguration {
+    private static final String ORDERS_COLLECTION = "orders";
 
     @Value("${spring.data.mongodb.host}")
     private String mongoHost;
@@ -30,13 +48,84 @@ public class MongoConfig extends AbstractReactiveMongoConfiguration {
     @Value("${spring.data.mongodb.password}")
     private String password;
 
+    @Value("${worker.mongodb.authenticate:true}")
+    private boolean authenticate;
+
+    @Value("${worker.mongodb.pool.max-size:100}")
+    private int maxPoolSize;
+
+    @Value("${worker.mongodb.pool.min-size:0}")
+    private int minPoolSize;
+
+    @Value("${worker.mongodb.pool.max-wait-time:2s}")
+    private Duration maxWaitTime;
+
+    @Value("${worker.mongodb.pool.max-connecting:2}")
+    private int maxConnecting;
+
+    @Value("${worker.mongodb.compressors:zstd,snappy}")
+    private String compressors;
+
+    @Value("${worker.mongodb.write-concern:acknowledged}")
+    private String writeConcern;
+
+    @Value("${worker.mongodb.retry-writes:true}")
+    private boolean retryWrites;
+
+    @Value("${worker.mongodb.indexes.timeout:30s}")
+    private Duration indexTimeout;
+
     @Override
     @Bean
     public MongoClient reactiveMongoClient() {
-        // Authenticate against the 'admin' database
-        String connectionString = String.format("mongodb://%s:%s@%s:%s/%s?authSource=admin",
+        // Authenticate against the 'admin' database, unless authentication is switched off
+        String connectionString = !authenticate
+                ? String.format("mongodb://%s:%s/%s", mongoHost, mongoPort, databaseName)
+                : String.format("mongodb://%s:%s@%s:%s/%s?authSource=admin",
                 username, password, mongoHost, mongoPort, databaseName);
-        return MongoClients.create(connectionString);
+        return MongoClients.create(ingestionSettings(connectionString, maxPoolSize, minPoolSize, maxWaitTime,
+                maxConnecting, compressors, writeConcern, retryWrites));
+    }
+
+    // Shared with the Mongo benchmarks so they measure exactly what the worker runs with
+    public static MongoClientSettings ingestionSettings(String connectionString, int maxPoolSize, int minPoolSize,
+                                                        Duration maxWaitTime, int maxConnecting, String compressors,
+                                                        String writeConcern, boolean retryWrites) {
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                // Every in-flight save holds a connection, size the pool for the pipeline concurrency
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(maxPoolSize)
+                        .minSize(minPoolSize)
+                        .maxWaitTime(maxWaitTime.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnecting(maxConnecting))
+                // The server picks the first compressor it supports, none if the list is empty
+                .compressorList(compressorList(compressors))
+                // 'acknowledged' (w:1), 'majority', 'journaled', 'w2', ... see WriteConcern.valueOf
+                .writeConcern(writeConcern(writeConcern))
+                .retryWrites(retryWrites)
+                .build();
+    }
+
+    private static List<MongoCompressor> compressorList(String compressors) {
+        return Arrays.stream(compressors.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .map(name -> switch (name.toLowerCase()) {
+                    case "zstd" -> MongoCompressor.createZstdCompressor();
+                    case "snappy" -> MongoCompressor.createSnappyCompressor();
+                    case "zlib" -> MongoCompressor.createZlibCompressor();
+                    default -> throw new IllegalArgumentException("Unknown MongoDB compressor: " + name);
+                })
+                .toList();
+    }
+
+    private static WriteConcern writeConcern(String name) {
+        WriteConcern concern = WriteConcern.valueOf(name.trim());
+        if (concern == null) {
+            throw new IllegalArgumentException("Unknown MongoDB write concern: " + name);
+        }
+        return concern;
     }
 
     @Override
@@ -50,23 +139,39 @@ public class MongoConfig extends AbstractReactiveMongoConfiguration {
     }
 
     @Bean
-    public Mono<Void> initializeDatabase(ReactiveMongoTemplate reactiveMongoTemplate) {
-        // Check if the 'orders' collection exists, if not, create it
-        return reactiveMongoTemplate.collectionExists("orders")
-                .flatMap(exists -> {
-                    if (!exists) {
-                        return reactiveMongoTemplate.createCollection("orders")
-                                .then(createIndexes(reactiveMongoTemplate));
-                    }
-                    return Mono.empty();
-                })
-                .then(); // Return a Mono<Void> to indicate completion
+    public SmartInitializingSingleton initializeDatabase(ReactiveMongoTemplate reactiveMongoTemplate) {
+        // Runs once every bean exists but before the Kafka listeners start, so no order is saved without the
+        // unique index. Creating an index that already exists is a no-op, they are ensured on every startup
+        return () -> createIndexes(reactiveMongoTemplate)
+                // Duplicates stay until someone removes them, retrying cannot help
+                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1))
+                        .filter(e -> !isDuplicateKey(e))
+                        .doBeforeRetry(signal -> log.warn("Creating the '{}' indexes failed, retrying. Error: {}",
+                                ORDERS_COLLECTION, signal.failure().getMessage())))
+                .onErrorMap(MongoConfig::isDuplicateKey, e -> new IllegalStateException(
+                        "Cannot create the unique 'orderId' index, the '" + ORDERS_COLLECTION + "' collection holds "
+                                + "several documents with the same orderId. Remove the duplicates as described in the "
+                                + "README ('Upgrading an Existing Database') and restart the worker", e))
+                .block(indexTimeout);
+    }
+
+    // Databases written before the unique index existed may hold the same orderId more than once
+    private static boolean isDuplicateKey(Throwable e) {
+        return e instanceof DuplicateKeyException
+                || (e instanceof MongoServerException serverException
+                && MongoDbErrorCodes.isDuplicateKeyCode(serverException.getCode()));
     }
 
-    private Mono<Void> createIndexes(ReactiveMongoTemplate reactiveMongoTemplate) {
-        // Create an index on the 'orderId' field in the 'orders' collection
-        ReactiveIndexOperations indexOps = reactiveMongoTemplate.indexOps("orders");
-        Index orderIdIndex = new Index().on("orderId", Sort.Direction.ASC).unique();
-        return indexOps.ensureIndex(orderIdIndex).then();
+    // Also used by MongoIngestionBenchmark so it writes against the same indexes as the worker
+    public static Mono<Void> createIndexes(ReactiveMongoTemplate reactiveMongoTemplate) {
+        // Unique 'orderId' backs the upserts, 'customerId' and 'createdAt' serve lookups by customer and time
+        ReactiveIndexOperations indexOps = reactiveMongoTemplate.indexOps(ORDERS_COLLECTION);
+        return Flux.just(
+                        new Index().on("orderId", Sort.Direction.ASC).unique(),
+                        new Index().on("customerId", Sort.Direction.ASC),
+                        new Index().on("createdAt", Sort.Direction.ASC))
+                .concatMap(indexOps::ensureIndex)
+                .doOnNext(index -> log.info("Index '{}' ensured on '{}'", index, ORDERS_COLLECTION))
+                .then();
     }
-}
\ No newline at end of file
+}
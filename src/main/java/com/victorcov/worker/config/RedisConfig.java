@@ -1,5 +1,7 @@
 package com.victorcov.worker.config;
 
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.serialization.ProductRedisSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
@@ -24,4 +26,15 @@ public class RedisConfig {
 
         return new ReactiveRedisTemplate<>(factory, serializationContext);
     }
-}
\ No newline at end of file
+
+    @Bean
+    public ReactiveRedisTemplate<String, Product> productRedisTemplate(ReactiveRedisConnectionFactory factory) {
+        // Cached products are read on every order, keep the values in the compact binary layout
+        RedisSerializationContext<String, Product> serializationContext = RedisSerializationContext
+                .<String, Product>newSerializationContext(new StringRedisSerializer())
+                .value(new ProductRedisSerializer())
+                .build();
+
+        return new ReactiveRedisTemplate<>(factory, serializationContext);
+    }
+}
@@ -3,6 +3,7 @@ package com.victorcov.worker.config;
 
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
+import org.redisson.api.RedissonReactiveClient;
 import org.redisson.config.Config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -22,4 +23,10 @@ public class RedissonConfig {
         config.useSingleServer().setAddress("redis://" + redisHost + ":" + redisPort);
         return Redisson.create(config);
     }
+
+    @Bean
+    public RedissonReactiveClient redissonReactiveClient(RedissonClient redissonClient) {
+        // Non-blocking view over the same connections, used for locks held across reactive pipelines
+        return redissonClient.reactive();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.victorcov.worker.consumer;
+
+import com.victorcov.worker.config.KafkaConfig;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "worker.kafka.mode", havingValue = "batch")
+public class OrderBatchConsumer {
+    @Autowired
+    private OrderService orderService;
+
+    @KafkaListener(topics = KafkaConfig.ORDERS_TOPIC, groupId = "order_group", containerFactory = "batchKafkaListenerContainerFactory")
+    public void consume(List<ConsumerRecord<String, Order>> records, Acknowledgment acknowledgment) {
+        List<Order> orders = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, Order> record : records) {
+            if (record.value() != null) {
+                orders.add(record.value());
+            } else {
+                log.warn("Discarded invalid order message at offset {}", record.offset());
+            }
+        }
+
+        if (!orders.isEmpty()) {
+            // Wait for the bulk write so offsets are only committed once the batch is handled
+            orderService.processOrders(orders).block();
+        }
+        acknowledgment.acknowledge();
+    }
+}
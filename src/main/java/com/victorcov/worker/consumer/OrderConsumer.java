@@ -1,46 +1,30 @@
 package com.victorcov.worker.consumer;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.victorcov.worker.config.KafkaConfig;
 import com.victorcov.worker.entity.Order;
 import com.victorcov.worker.service.OrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "worker.kafka.mode", havingValue = "single", matchIfMissing = true)
 public class OrderConsumer {
-    private final Gson gson = new Gson();
     @Autowired
     private OrderService orderService;
 
-    @KafkaListener(topics = "orders_topic", groupId = "order_group")
-    public void consume(String message) {
-        Order order = parseMessage(message);
-        if (order != null && isValidOrder(order)) {
+    // OrderDeserializer already parsed and validated the record, invalid ones arrive as null
+    @KafkaListener(topics = KafkaConfig.ORDERS_TOPIC, groupId = "order_group")
+    public void consume(@Payload(required = false) Order order) {
+        if (order != null) {
             orderService.processOrder(order);
         } else {
-            log.warn("Discarded invalid message: {}", message);
+            log.warn("Discarded invalid order message");
         }
     }
 
-    private Order parseMessage(String message) {
-        try {
-            return gson.fromJson(message, Order.class);
-        } catch (JsonSyntaxException e) {
-            throw new IllegalArgumentException("Invalid JSON format for Order: " + message, e);
-        }
-    }
-
-    private boolean isValidOrder(Order order) {
-        return order.getOrderId() != null
-                && order.getCustomerId() != null
-                && !order.getCustomerId().isEmpty()
-                && order.getProducts() != null
-                && !order.getProducts().isEmpty()
-                && order.getProducts().stream().allMatch(product -> product.getProductId() != null && !product.getProductId().isEmpty());
-    }
-
 }
\ No newline at end of file
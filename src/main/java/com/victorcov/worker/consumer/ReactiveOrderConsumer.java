@@ -0,0 +1,95 @@
+package com.victorcov.worker.consumer;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.service.OrderMetrics;
+import com.victorcov.worker.service.OrderService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "worker.kafka.mode", havingValue = "reactive")
+public class ReactiveOrderConsumer {
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ReceiverOptions<String, Order> orderReceiverOptions;
+    @Autowired
+    private OrderMetrics orderMetrics;
+
+    @Value("${worker.pipeline.concurrency:64}")
+    private int concurrency;
+
+    // Records sharing this key are processed one after the other: 'orderId', 'customerId' or 'none'
+    @Value("${worker.pipeline.ordering-key:orderId}")
+    private String orderingKey;
+
+    private Disposable subscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = process(KafkaReceiver.create(orderReceiverOptions).receive())
+                .doOnError(e -> log.error("Order pipeline failed, restarting from the last committed offsets. Error: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    Flux<Void> process(Flux<ReceiverRecord<String, Order>> records) {
+        // flatMap only requests as many records as there are free slots, when every slot is busy the
+        // receiver stops requesting and pauses the assigned partitions until an order completes
+        if ("none".equals(orderingKey)) {
+            return records.flatMap(this::consume, concurrency);
+        }
+        // Every key hashes to one of 'concurrency' lanes, each lane runs its records in order so different
+        // keys progress in parallel while two records of the same key never overlap. Offsets still complete
+        // out of order across lanes, the receiver only commits up to the oldest unacknowledged one
+        return records
+                .groupBy(record -> Math.floorMod(orderingKey(record).hashCode(), concurrency))
+                .flatMap(lane -> lane.concatMap(this::consume), concurrency);
+    }
+
+    private String orderingKey(ReceiverRecord<String, Order> record) {
+        Order order = record.value();
+        if (order == null) {
+            // Invalid records are only acknowledged, spread them by offset
+            return String.valueOf(record.offset());
+        }
+        return "customerId".equals(orderingKey) ? order.getCustomerId() : order.getOrderId();
+    }
+
+    Mono<Void> consume(ReceiverRecord<String, Order> record) {
+        Order order = record.value();
+        if (order == null) {
+            log.warn("Discarded invalid order message at offset {}", record.offset());
+            record.receiverOffset().acknowledge();
+            return Mono.empty();
+        }
+
+        orderMetrics.recordReceived(record.timestamp());
+        // The offset is only acknowledged once the order was saved or handed to the retry handling
+        return orderService.processOrderWithLock(order)
+                .doOnSuccess(unused -> record.receiverOffset().acknowledge());
+    }
+}
@@ -0,0 +1,98 @@
+package com.victorcov.worker.consumer;
+
+import com.victorcov.worker.service.OrderMetrics;
+import com.victorcov.worker.service.OrderService;
+import com.victorcov.worker.service.RetryScheduler;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.github.resilience4j.reactor.ratelimiter.operator.RateLimiterOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Retries run in their own lane next to the Kafka consumers: claimed from the Redis retry queue, limited to
+// 'worker.retry.concurrency' at a time and to the 'retryTraffic' rate, so they never take more than their share
+// of the Product and Client APIs away from fresh orders
+@Slf4j
+@Component
+public class RetryPoller {
+    private static final String RATE_LIMITER = "retryTraffic";
+    private static final List<String> DEPENDENCIES = List.of("productApi", "clientApi");
+
+    @Autowired
+    private RetryScheduler retryScheduler;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private RateLimiterRegistry rateLimiterRegistry;
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    @Autowired
+    private OrderMetrics orderMetrics;
+
+    @Value("${worker.retry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${worker.retry.concurrency:16}")
+    private int concurrency;
+
+    private final AtomicBoolean polling = new AtomicBoolean();
+
+    @Scheduled(fixedDelayString = "${worker.retry.poll-interval-ms:500}")
+    public void poll() {
+        // Skip this tick if the previous batch is still being processed
+        if (!polling.compareAndSet(false, true)) {
+            return;
+        }
+        // While a downstream API is failing every call would be rejected anyway, so retries stay queued until its
+        // circuit leaves OPEN. Half-open circuits are not skipped: without fresh orders, retries are the only calls
+        // that can complete the trial calls and close the circuit again
+        if (dependencyOpen()) {
+            polling.set(false);
+            return;
+        }
+
+        RateLimiter rateLimiter = rateLimiterRegistry.rateLimiter(RATE_LIMITER);
+        retryScheduler.claimDue(batchSize)
+                .flatMap(task -> {
+                    orderMetrics.recordRetryClaimed(task.dueAt());
+                    log.debug("Retrying order: {}", task.order().getOrderId());
+                    // A failed attempt leaves the claim in place, the order comes back once the lease expires.
+                    // The same happens when no permit is free within the rate limiter timeout
+                    return Mono.defer(() -> orderService.processOrderLogic(task.order()))
+                            .transformDeferred(RateLimiterOperator.of(rateLimiter))
+                            .then(Mono.defer(() -> retryScheduler.complete(task)))
+                            .onErrorResume(e -> {
+                                // Running out of permits is expected whenever more retries are due than the rate allows
+                                if (e instanceof RequestNotPermitted) {
+                                    orderMetrics.recordRetryRateLimited();
+                                    log.debug("Retry of order {} is rate limited, it comes back once its claim expires",
+                                            task.order().getOrderId());
+                                } else {
+                                    log.error("Error retrying order: {}. Error: {}", task.order().getOrderId(), e.getMessage());
+                                }
+                                return Mono.empty();
+                            });
+                }, concurrency)
+                .doFinally(signal -> polling.set(false))
+                .subscribe(
+                        null,
+                        error -> log.error("Error polling due retries. Error: {}", error.getMessage())
+                );
+    }
+
+    private boolean dependencyOpen() {
+        return DEPENDENCIES.stream()
+                .map(circuitBreakerRegistry::circuitBreaker)
+                .anyMatch(circuitBreaker -> circuitBreaker.getState() == CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,24 @@
+package com.victorcov.worker.controller;
+
+import com.victorcov.worker.service.FailedOrderReplayService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/failed-orders")
+public class FailedOrderController {
+    @Autowired
+    private FailedOrderReplayService failedOrderReplayService;
+
+    // Streams the replayed order IDs, closing the connection stops the replay
+    @PostMapping(value = "/replay", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<String> replay(@RequestParam(defaultValue = "10") int rate,
+                               @RequestParam(defaultValue = "1000") int limit) {
+        return failedOrderReplayService.replay(rate, limit);
+    }
+}
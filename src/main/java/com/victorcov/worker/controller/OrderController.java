@@ -0,0 +1,26 @@
+package com.victorcov.worker.controller;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.service.OrderQueryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/orders")
+public class OrderController {
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    // Full view of a saved order with its products, also for orders stored with the slim projection
+    @GetMapping("/{orderId}")
+    public Mono<ResponseEntity<Order>> findOrder(@PathVariable String orderId) {
+        return orderQueryService.findOrder(orderId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,36 @@
+package com.victorcov.worker.controller;
+
+import com.victorcov.worker.service.OrderTrace;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+// GET /actuator/ordertrace lists the traced orders, POST/DELETE /actuator/ordertrace/{orderId} switch one on or off
+@Component
+@Endpoint(id = "ordertrace")
+public class OrderTraceEndpoint {
+    @Autowired
+    private OrderTrace orderTrace;
+
+    @ReadOperation
+    public Set<String> tracedOrders() {
+        return orderTrace.tracedOrderIds();
+    }
+
+    @WriteOperation
+    public Map<String, Object> enable(@Selector String orderId) {
+        return Map.of("orderId", orderId, "traced", orderTrace.enable(orderId));
+    }
+
+    @DeleteOperation
+    public void disable(@Selector String orderId) {
+        orderTrace.disable(orderId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.victorcov.worker.entity;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Builder
+@Data
+@Document(collection = "failed_orders")
+public class FailedOrder {
+    @Id
+    private String id;
+    private String orderId;
+    private String customerId;
+    private Order order;
+    private String failureType;
+    private String failureCause;
+    private long attempts;
+    private Instant failedAt;
+    private Instant replayedAt;
+}
@@ -0,0 +1,70 @@
+package com.victorcov.worker.entity;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Slim storage layout of an order: product IDs with quantity and price snapshot instead of the enriched
+// products, names and other catalog data are joined back from the Product API when the order is read
+@Builder
+@Data
+@Document(collection = "orders")
+public class OrderDocument {
+    @Id
+    private String id;
+    private String orderId;
+    private String customerId;
+    private List<OrderItem> items;
+    private double total;
+    private Instant createdAt;
+
+    public static OrderDocument from(Order order) {
+        // A product listed several times in the order is stored once with its quantity
+        Map<String, OrderItem> items = new LinkedHashMap<>();
+        double total = 0;
+        for (Product product : order.getProducts()) {
+            OrderItem item = items.computeIfAbsent(product.getProductId(), productId -> OrderItem.builder()
+                    .productId(productId)
+                    .price(product.getPrice())
+                    .build());
+            item.setQuantity(item.getQuantity() + 1);
+            total += item.getPrice();
+        }
+        return OrderDocument.builder()
+                .id(order.getId())
+                .orderId(order.getOrderId())
+                .customerId(order.getCustomerId())
+                .items(List.copyOf(items.values()))
+                .total(total)
+                .build();
+    }
+
+    // Expands the items back into the order's product list, using the catalog for everything but the price
+    public Order toOrder(Map<String, Product> catalog) {
+        List<Product> products = new ArrayList<>();
+        for (OrderItem item : items) {
+            Product current = catalog.get(item.getProductId());
+            Product product = Product.builder()
+                    .productId(item.getProductId())
+                    .name(current != null ? current.getName() : null)
+                    .price(item.getPrice())
+                    .build();
+            for (int i = 0; i < item.getQuantity(); i++) {
+                products.add(product);
+            }
+        }
+        return Order.builder()
+                .id(id)
+                .orderId(orderId)
+                .customerId(customerId)
+                .products(products)
+                .build();
+    }
+}
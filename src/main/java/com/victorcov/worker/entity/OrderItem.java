@@ -0,0 +1,18 @@
+package com.victorcov.worker.entity;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+// One line of a slim order document, short field names since they repeat for every product
+@Data
+@Builder
+public class OrderItem {
+    @Field("p")
+    private String productId;
+    @Field("q")
+    private int quantity;
+    // Price at the time the order was saved
+    @Field("pr")
+    private double price;
+}
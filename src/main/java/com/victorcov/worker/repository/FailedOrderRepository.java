@@ -0,0 +1,12 @@
+package com.victorcov.worker.repository;
+
+import com.victorcov.worker.entity.FailedOrder;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface FailedOrderRepository extends ReactiveMongoRepository<FailedOrder, String>, FailedOrderRepositoryCustom {
+
+    Flux<FailedOrder> findByReplayedAtIsNullOrderByFailedAtAsc();
+}
@@ -0,0 +1,11 @@
+package com.victorcov.worker.repository;
+
+import com.victorcov.worker.entity.FailedOrder;
+import reactor.core.publisher.Mono;
+
+public interface FailedOrderRepositoryCustom {
+
+    // Stores the failed order or replaces the entry with the same 'orderId', so a repeated dead-lettering
+    // leaves a single entry that is replayed once
+    Mono<Void> upsert(FailedOrder failedOrder);
+}
@@ -0,0 +1,37 @@
+package com.victorcov.worker.repository;
+
+import com.victorcov.worker.entity.FailedOrder;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+@Slf4j
+public class FailedOrderRepositoryCustomImpl implements FailedOrderRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public FailedOrderRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<Void> upsert(FailedOrder failedOrder) {
+        // Keep the generated '_id' and clear 'replayedAt', an order failing again after a replay is replayable again
+        Document document = new Document();
+        reactiveMongoTemplate.getConverter().write(failedOrder, document);
+        document.remove("_id");
+        document.remove("replayedAt");
+        Update update = Update.fromDocument(new Document("$set", document)
+                .append("$unset", new Document("replayedAt", "")));
+
+        return reactiveMongoTemplate.upsert(Query.query(Criteria.where("orderId").is(failedOrder.getOrderId())),
+                        update, FailedOrder.class)
+                .doOnSuccess(result -> log.debug("Upsert of failed order {}: inserted={}",
+                        failedOrder.getOrderId(), result.getUpsertedId() != null))
+                .then();
+    }
+}
@@ -3,7 +3,10 @@ package com.victorcov.worker.repository;
 import com.victorcov.worker.entity.Order;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
 
 @Repository
-public interface OrderRepository extends ReactiveMongoRepository<Order, String> {
-}
\ No newline at end of file
+public interface OrderRepository extends ReactiveMongoRepository<Order, String>, OrderRepositoryCustom {
+
+    Mono<Boolean> existsByOrderId(String orderId);
+}
@@ -0,0 +1,20 @@
+package com.victorcov.worker.repository;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.OrderDocument;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+public interface OrderRepositoryCustom {
+
+    // Inserts the order or replaces the stored one with the same 'orderId', safe to repeat on redelivery
+    Mono<Void> upsert(Order order);
+
+    // Upserts all the given orders on 'orderId' using a single unordered bulk write
+    Mono<Void> upsertAll(List<Order> orders);
+
+    // Reads the stored order as is when it was written with the full projection, a slim one goes through 'hydrate'
+    Mono<Order> findOrderByOrderId(String orderId, Function<OrderDocument, Mono<Order>> hydrate);
+}
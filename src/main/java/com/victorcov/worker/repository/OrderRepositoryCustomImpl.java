@@ -0,0 +1,98 @@
+package com.victorcov.worker.repository;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.OrderDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+@Slf4j
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+    private static final String ORDERS_COLLECTION = "orders";
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    // 'full' stores the enriched products, 'slim' stores product IDs, quantities, price snapshots and the total
+    private final boolean slim;
+
+    public OrderRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate,
+                                     @Value("${worker.persistence.projection:full}") String projection) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.slim = "slim".equalsIgnoreCase(projection);
+    }
+
+    @Override
+    public Mono<Void> upsert(Order order) {
+        return reactiveMongoTemplate.upsert(byOrderId(order), toUpdate(order), Order.class)
+                .doOnSuccess(result -> log.debug("Upsert of order {}: inserted={}, modified={}",
+                        order.getOrderId(), result.getUpsertedId() != null, result.getModifiedCount()))
+                .then();
+    }
+
+    @Override
+    public Mono<Void> upsertAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Mono.empty();
+        }
+        // Unordered so one failing document does not stop the rest of the batch
+        ReactiveBulkOperations bulkOps = reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        orders.forEach(order -> bulkOps.upsert(byOrderId(order), toUpdate(order)));
+
+        return bulkOps.execute()
+                .doOnSuccess(result -> log.debug("Bulk upsert of {} orders: {} inserted, {} modified",
+                        orders.size(), result.getUpserts().size(), result.getModifiedCount()))
+                .then();
+    }
+
+    @Override
+    public Mono<Order> findOrderByOrderId(String orderId, Function<OrderDocument, Mono<Order>> hydrate) {
+        // Both layouts live in the same collection, e.g. while switching projections
+        return reactiveMongoTemplate.findOne(byOrderId(orderId), Document.class, ORDERS_COLLECTION)
+                .flatMap(document -> {
+                    if (!document.containsKey("items")) {
+                        return Mono.just(reactiveMongoTemplate.getConverter().read(Order.class, document));
+                    }
+                    return hydrate.apply(reactiveMongoTemplate.getConverter().read(OrderDocument.class, document));
+                });
+    }
+
+    private Query byOrderId(Order order) {
+        return byOrderId(order.getOrderId());
+    }
+
+    private Query byOrderId(String orderId) {
+        return Query.query(Criteria.where("orderId").is(orderId));
+    }
+
+    private Update toUpdate(Order order) {
+        // Map the entity with the template converter and never overwrite the generated '_id'.
+        // 'createdAt' is only written by the insert, a redelivery keeps the original creation time
+        // The fields of the other layout are removed, a document rewritten after switching projections
+        // is then read back by the layout it was last written with
+        Document document = new Document();
+        Document unset;
+        if (slim) {
+            reactiveMongoTemplate.getConverter().write(OrderDocument.from(order), document);
+            // Read back by field layout, the type hint would only add bytes to every document
+            document.remove("_class");
+            unset = new Document("products", "");
+        } else {
+            reactiveMongoTemplate.getConverter().write(order, document);
+            unset = new Document("items", "").append("total", "");
+        }
+        document.remove("_id");
+        return Update.fromDocument(new Document("$set", document)
+                .append("$unset", unset)
+                .append("$setOnInsert", new Document("createdAt", new Date())));
+    }
+}
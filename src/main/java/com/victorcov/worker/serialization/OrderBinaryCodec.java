@@ -0,0 +1,159 @@
+package com.victorcov.worker.serialization;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Compact binary encoding of an order, version 1:
+ *
+ *   byte     schema version (1)
+ *   string   orderId
+ *   string   customerId
+ *   varint   product count
+ *   per product:
+ *     string   productId
+ *     byte     flags (bit 0: name present, bit 1: price present)
+ *     string   name   (if present)
+ *     double   price  (if present, 8 bytes big-endian)
+ *
+ * Strings are a varint byte length followed by UTF-8 bytes.
+ */
+public final class OrderBinaryCodec {
+    public static final byte SCHEMA_VERSION = 1;
+
+    private static final int NAME_PRESENT = 1;
+    private static final int PRICE_PRESENT = 2;
+
+    private OrderBinaryCodec() {
+    }
+
+    public static byte[] encode(Order order) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + order.getProducts().size() * 32);
+        out.write(SCHEMA_VERSION);
+        writeString(out, order.getOrderId());
+        writeString(out, order.getCustomerId());
+        writeVarInt(out, order.getProducts().size());
+        for (Product product : order.getProducts()) {
+            writeProduct(out, product);
+        }
+        return out.toByteArray();
+    }
+
+    public static void writeProduct(ByteArrayOutputStream out, Product product) {
+        writeString(out, product.getProductId());
+        int flags = (product.getName() != null ? NAME_PRESENT : 0) | (product.getPrice() != 0 ? PRICE_PRESENT : 0);
+        out.write(flags);
+        if ((flags & NAME_PRESENT) != 0) {
+            writeString(out, product.getName());
+        }
+        if ((flags & PRICE_PRESENT) != 0) {
+            long bits = Double.doubleToRawLongBits(product.getPrice());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        }
+    }
+
+    // Returns null for unknown versions, truncated payloads or orders missing required fields
+    public static Order decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.get() != SCHEMA_VERSION) {
+            return null;
+        }
+        String orderId = readString(buffer);
+        String customerId = readString(buffer);
+        int count = readVarInt(buffer);
+        if (orderId == null || customerId == null || customerId.isEmpty() || count <= 0 || count > buffer.remaining()) {
+            return null;
+        }
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = readProduct(buffer);
+            if (product == null) {
+                return null;
+            }
+            products.add(product);
+        }
+        return Order.builder()
+                .orderId(orderId)
+                .customerId(customerId)
+                .products(products)
+                .build();
+    }
+
+    public static Product readProduct(ByteBuffer buffer) {
+        String productId = readString(buffer);
+        if (productId == null || productId.isEmpty() || !buffer.hasRemaining()) {
+            return null;
+        }
+        int flags = buffer.get();
+        String name = null;
+        double price = 0;
+        if ((flags & NAME_PRESENT) != 0) {
+            name = readString(buffer);
+            if (name == null) {
+                return null;
+            }
+        }
+        if ((flags & PRICE_PRESENT) != 0) {
+            if (buffer.remaining() < Double.BYTES) {
+                return null;
+            }
+            price = buffer.getDouble();
+        }
+        return Product.builder()
+                .productId(productId)
+                .name(name)
+                .price(price)
+                .build();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Returns -1 when the varint is truncated or too long
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,145 @@
+package com.victorcov.worker.serialization;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads an Order straight from the record bytes and validates it in the same pass,
+// invalid or malformed records come back as null instead of failing the consumer
+@Slf4j
+public class OrderDeserializer implements Deserializer<Order> {
+
+    // JSON and binary producers can share the topic, the 'order-format' header picks the decoder
+    @Override
+    public Order deserialize(String topic, Headers headers, byte[] data) {
+        if (OrderFormat.fromHeaders(headers) == OrderFormat.BINARY) {
+            return OrderBinaryCodec.decode(data);
+        }
+        return deserialize(topic, data);
+    }
+
+    @Override
+    public Order deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+            reader.setLenient(true);
+            return readOrder(reader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            log.debug("Malformed order record on topic {}: {}", topic, e.getMessage());
+            return null;
+        }
+    }
+
+    private Order readOrder(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
+        }
+        String orderId = null;
+        String customerId = null;
+        List<Product> products = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "orderId" -> orderId = readString(reader);
+                case "customerId" -> {
+                    customerId = readString(reader);
+                    if (customerId == null || customerId.isEmpty()) {
+                        return null;
+                    }
+                }
+                case "products" -> {
+                    products = readProducts(reader);
+                    if (products == null) {
+                        return null;
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (orderId == null || customerId == null || products == null) {
+            return null;
+        }
+        return Order.builder()
+                .orderId(orderId)
+                .customerId(customerId)
+                .products(products)
+                .build();
+    }
+
+    // Returns null as soon as the list turns out to be invalid
+    private List<Product> readProducts(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return null;
+        }
+        List<Product> products = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Product product = readProduct(reader);
+            if (product == null) {
+                return null;
+            }
+            products.add(product);
+        }
+        reader.endArray();
+        return products.isEmpty() ? null : products;
+    }
+
+    private Product readProduct(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
+        }
+        String productId = null;
+        String name = null;
+        double price = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "productId" -> productId = readString(reader);
+                case "name" -> name = readString(reader);
+                case "price" -> price = reader.peek() == JsonToken.NULL ? skip(reader) : reader.nextDouble();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (productId == null || productId.isEmpty()) {
+            return null;
+        }
+        return Product.builder()
+                .productId(productId)
+                .name(name)
+                .price(price)
+                .build();
+    }
+
+    private String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private double skip(JsonReader reader) throws IOException {
+        reader.skipValue();
+        return 0;
+    }
+}
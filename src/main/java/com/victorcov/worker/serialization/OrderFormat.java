@@ -0,0 +1,36 @@
+package com.victorcov.worker.serialization;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+// Wire format of an order record, carried in the 'order-format' header (JSON when absent)
+public enum OrderFormat {
+    JSON("json"),
+    BINARY("binary");
+
+    public static final String HEADER = "order-format";
+
+    private final String headerValue;
+
+    OrderFormat(String headerValue) {
+        this.headerValue = headerValue;
+    }
+
+    public byte[] headerValue() {
+        return headerValue.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static OrderFormat fromHeaders(Headers headers) {
+        Header header = headers == null ? null : headers.lastHeader(HEADER);
+        if (header != null && BINARY.headerValue.equals(new String(header.value(), StandardCharsets.UTF_8))) {
+            return BINARY;
+        }
+        return JSON;
+    }
+
+    public static OrderFormat fromName(String name) {
+        return BINARY.headerValue.equalsIgnoreCase(name) ? BINARY : JSON;
+    }
+}
@@ -0,0 +1,45 @@
+package com.victorcov.worker.serialization;
+
+import com.google.gson.Gson;
+import com.victorcov.worker.entity.Order;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Writes orders in the configured wire format and tags the record so consumers pick the right decoder
+public class OrderSerializer implements Serializer<Order> {
+    public static final String FORMAT_CONFIG = "order.serializer.format";
+    private static final Gson gson = new Gson();
+
+    private OrderFormat format = OrderFormat.BINARY;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object configured = configs.get(FORMAT_CONFIG);
+        if (configured != null) {
+            format = OrderFormat.fromName(configured.toString());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Order order) {
+        if (order == null) {
+            return null;
+        }
+        headers.remove(OrderFormat.HEADER);
+        headers.add(OrderFormat.HEADER, format.headerValue());
+        return serialize(topic, order);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Order order) {
+        if (order == null) {
+            return null;
+        }
+        return format == OrderFormat.BINARY
+                ? OrderBinaryCodec.encode(order)
+                : gson.toJson(order).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,35 @@
+package com.victorcov.worker.serialization;
+
+import com.victorcov.worker.entity.Product;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+// Stores cached products as a schema version byte followed by the product layout of OrderBinaryCodec
+public class ProductRedisSerializer implements RedisSerializer<Product> {
+
+    @Override
+    public byte[] serialize(Product product) {
+        if (product == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(48);
+        out.write(OrderBinaryCodec.SCHEMA_VERSION);
+        OrderBinaryCodec.writeProduct(out, product);
+        return out.toByteArray();
+    }
+
+    // Unreadable or older entries come back as null so the caller treats them as a cache miss
+    @Override
+    public Product deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() != OrderBinaryCodec.SCHEMA_VERSION) {
+            return null;
+        }
+        return OrderBinaryCodec.readProduct(buffer);
+    }
+}
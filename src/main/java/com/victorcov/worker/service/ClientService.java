@@ -1,54 +1,101 @@
 package com.victorcov.worker.service;
 
-import com.victorcov.worker.entity.Client;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.victorcov.worker.client.ClientApiClient;
 import com.victorcov.worker.entity.Order;
 import com.victorcov.worker.exceptions.ClientInactiveException;
 import com.victorcov.worker.exceptions.ClientNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @Slf4j
 @Service
 public class ClientService {
-    private final WebClient webClient = WebClient.create("http://localhost:8082/clients");
+    private final ClientApiClient clientApiClient;
+    private final AsyncCache<String, ClientStatus> clientStatusCache;
+
+    public ClientService(ClientApiClient clientApiClient,
+                         MeterRegistry meterRegistry,
+                         @Value("${worker.client-cache.maximum-size:10000}") long maximumSize,
+                         @Value("${worker.client-cache.ttl:1m}") Duration ttl,
+                         @Value("${worker.client-cache.not-found-ttl:10s}") Duration notFoundTtl) {
+        this.clientApiClient = clientApiClient;
+        this.clientStatusCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ClientStatusExpiry(ttl, notFoundTtl))
+                .recordStats()
+                .buildAsync();
 
+        CaffeineCacheMetrics.monitor(meterRegistry, clientStatusCache, "client-status");
+    }
 
     public Mono<Order> validateClientInOrder(Order order) {
-        String customerId = order.getCustomerId();
-
-        return webClient.get()
-                .uri("/{id}", customerId)
-                .exchangeToMono(response -> {
-                    if (response.statusCode().is4xxClientError()) {
-                        log.warn("Client not found with ID: {}", customerId);
-                        return Mono.error(new ClientNotFoundException("Client not found with ID: " + customerId));
+        return validateClient(order.getCustomerId())
+                .thenReturn(order); // Return the order if the client exists
+    }
+
+    public Mono<Void> validateClient(String customerId) {
+        return findClientStatus(customerId)
+                .flatMap(status -> switch (status) {
+                    case NOT_FOUND -> Mono.error(new ClientNotFoundException("Client not found with ID: " + customerId));
+                    case INACTIVE -> {
+                        log.debug("Client with ID: {} is inactive", customerId);
+                        yield Mono.error(new ClientInactiveException("Client with ID: " + customerId + " is inactive"));
                     }
-                    return response.bodyToMono(Client.class)
-                            .flatMap(client -> {
-                                if (!client.isActive()) {
-                                    log.warn("Client with ID: {} is inactive", customerId);
-                                    return Mono.error(new ClientInactiveException("Client with ID: " + customerId + " is inactive"));
-                                }
-                                log.info("Client found and active for ID: {}", customerId);
-                                return Mono.empty(); // No body needed, just checking existence
-                            });
+                    case ACTIVE -> Mono.<Void>empty();
                 })
-                .doOnSubscribe(subscription ->
-                        log.info("Sending request to Client API for client ID: {}", customerId)
-                )
                 .doOnSuccess(unused ->
-                        log.info("Client found and validated for ID: {}", customerId)
-                )
-                .doOnError(e ->
-                        log.info("Error validating client ID: {}. Error: {}", customerId, e.getMessage())
+                        log.debug("Client found and validated for ID: {}", customerId)
                 )
                 .onErrorResume(e -> {
                     // Log and handle the error by returning a default response or error
-                    log.error("Error processing client ID: {}. Error: {}", customerId, e.getMessage());
+                    log.debug("Error processing client ID: {}. Error: {}", customerId, e.getMessage());
                     return Mono.error(e); // Rethrow the error or provide a default response
                 })
-                .thenReturn(order); // Return the order if the client exists
+                .then();
+    }
+
+    // Drops the cached status of a client so the next order goes back to the Client API
+    public void invalidate(String customerId) {
+        clientStatusCache.synchronous().invalidate(customerId);
+    }
+
+    private Mono<ClientStatus> findClientStatus(String customerId) {
+        // Concurrent lookups for the same client share the in-flight request, failures are not cached
+        return Mono.fromFuture(clientStatusCache.get(customerId, (id, executor) ->
+                clientApiClient.findClient(id)
+                        .map(client -> client.isActive() ? ClientStatus.ACTIVE : ClientStatus.INACTIVE)
+                        .onErrorResume(ClientNotFoundException.class, e -> Mono.just(ClientStatus.NOT_FOUND))
+                        .toFuture()), true);
+    }
+
+    private enum ClientStatus {
+        ACTIVE, INACTIVE, NOT_FOUND
+    }
+
+    private record ClientStatusExpiry(Duration ttl, Duration notFoundTtl) implements Expiry<String, ClientStatus> {
+
+        @Override
+        public long expireAfterCreate(String customerId, ClientStatus status, long currentTime) {
+            return (status == ClientStatus.NOT_FOUND ? notFoundTtl : ttl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String customerId, ClientStatus status, long currentTime, long currentDuration) {
+            return expireAfterCreate(customerId, status, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String customerId, ClientStatus status, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
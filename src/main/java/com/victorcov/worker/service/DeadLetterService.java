@@ -0,0 +1,68 @@
+package com.victorcov.worker.service;
+
+import com.google.gson.Gson;
+import com.victorcov.worker.config.KafkaConfig;
+import com.victorcov.worker.entity.FailedOrder;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.repository.FailedOrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+@Slf4j
+@Service
+public class DeadLetterService {
+    public static final String FAILURE_TYPE_HEADER = "x-failure-type";
+    public static final String FAILURE_CAUSE_HEADER = "x-failure-cause";
+    public static final String ATTEMPTS_HEADER = "x-attempts";
+    public static final String FAILED_AT_HEADER = "x-failed-at";
+    private static final Gson gson = new Gson();
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    @Autowired
+    private FailedOrderRepository failedOrderRepository;
+
+
+    // Publishes the order to the dead-letter topic and keeps a copy in 'failed_orders' for replay. The copy is
+    // upserted on 'orderId', if one side fails and the order is dead-lettered again it is still stored once
+    public Mono<Void> deadLetter(Order order, Throwable cause, long attempts) {
+        FailedOrder failedOrder = FailedOrder.builder()
+                .orderId(order.getOrderId())
+                .customerId(order.getCustomerId())
+                .order(order)
+                .failureType(cause.getClass().getSimpleName())
+                .failureCause(cause.getMessage())
+                .attempts(attempts)
+                .failedAt(Instant.now())
+                .build();
+
+        return Mono.when(publish(failedOrder), failedOrderRepository.upsert(failedOrder))
+                .doOnSuccess(unused ->
+                        log.warn("Order: {} dead-lettered after {} attempts. Cause: {}", order.getOrderId(), attempts, cause.getMessage())
+                );
+    }
+
+    private Mono<Void> publish(FailedOrder failedOrder) {
+        ProducerRecord<String, String> record = new ProducerRecord<>(KafkaConfig.ORDERS_DLT_TOPIC,
+                failedOrder.getOrderId(), gson.toJson(failedOrder.getOrder()));
+        addHeader(record, FAILURE_TYPE_HEADER, failedOrder.getFailureType());
+        addHeader(record, FAILURE_CAUSE_HEADER, failedOrder.getFailureCause());
+        addHeader(record, ATTEMPTS_HEADER, String.valueOf(failedOrder.getAttempts()));
+        addHeader(record, FAILED_AT_HEADER, failedOrder.getFailedAt().toString());
+
+        return Mono.fromFuture(() -> kafkaTemplate.send(record)).then();
+    }
+
+    private void addHeader(ProducerRecord<String, String> record, String name, String value) {
+        if (value != null) {
+            record.headers().add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.victorcov.worker.service;
+
+import com.google.gson.Gson;
+import com.victorcov.worker.config.KafkaConfig;
+import com.victorcov.worker.entity.FailedOrder;
+import com.victorcov.worker.repository.FailedOrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Slf4j
+@Service
+public class FailedOrderReplayService {
+    private static final String RETRY_PREFIX = "order:retry:";
+    private static final Gson gson = new Gson();
+
+    @Autowired
+    private FailedOrderRepository failedOrderRepository;
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    @Autowired
+    private ReactiveRedisTemplate<String, Object> redisTemplate;
+
+
+    // Re-injects up to 'limit' failed orders into the orders topic, at most 'ratePerSecond' per second
+    public Flux<String> replay(int ratePerSecond, int limit) {
+        Duration interval = Duration.ofNanos(Duration.ofSeconds(1).toNanos() / Math.max(1, ratePerSecond));
+
+        return failedOrderRepository.findByReplayedAtIsNullOrderByFailedAtAsc()
+                .take(limit)
+                .delayElements(interval)
+                .concatMap(this::replay)
+                .doOnComplete(() -> log.info("Replay of failed orders finished"));
+    }
+
+    private Mono<String> replay(FailedOrder failedOrder) {
+        String orderId = failedOrder.getOrderId();
+        // Start from a fresh retry budget, then hand the order back to the normal pipeline
+        return redisTemplate.delete(RETRY_PREFIX + orderId)
+                .then(Mono.fromFuture(() -> kafkaTemplate.send(KafkaConfig.ORDERS_TOPIC, orderId, gson.toJson(failedOrder.getOrder()))))
+                .then(Mono.defer(() -> {
+                    failedOrder.setReplayedAt(Instant.now());
+                    return failedOrderRepository.save(failedOrder);
+                }))
+                .doOnSuccess(saved -> log.info("Replayed failed order: {}", orderId))
+                .thenReturn(orderId);
+    }
+}
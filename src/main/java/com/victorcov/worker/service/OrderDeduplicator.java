@@ -0,0 +1,134 @@
+package com.victorcov.worker.service;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Bloom filter of persisted order IDs kept in a Redis bitmap, so redelivered orders are dropped before any
+// HTTP enrichment. A hit is only a 'maybe', it is confirmed against Mongo before the order is dropped.
+@Slf4j
+@Service
+public class OrderDeduplicator {
+    private static final String BLOOM_KEY = "order:persisted:bloom";
+
+    // Returns 1 only when every bit of the order ID is set
+    private static final RedisScript<Long> CONTAINS_SCRIPT = RedisScript.of("""
+            for i = 1, #ARGV do
+                if redis.call('GETBIT', KEYS[1], ARGV[i]) == 0 then
+                    return 0
+                end
+            end
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> ADD_SCRIPT = RedisScript.of("""
+            for i = 1, #ARGV do
+                redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+            end
+            return #ARGV
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final OrderRepository orderRepository;
+    private final boolean enabled;
+    private final long bitCount;
+    private final int hashCount;
+
+    public OrderDeduplicator(ReactiveStringRedisTemplate stringRedisTemplate,
+                             OrderRepository orderRepository,
+                             @Value("${worker.dedupe.enabled:true}") boolean enabled,
+                             @Value("${worker.dedupe.expected-insertions:10000000}") long expectedInsertions,
+                             @Value("${worker.dedupe.false-probability:0.001}") double falseProbability) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.orderRepository = orderRepository;
+        this.enabled = enabled;
+        // Standard Bloom filter sizing, capped to the largest bitmap Redis can hold
+        this.bitCount = Math.min(4L * 1024 * 1024 * 1024 - 1,
+                (long) Math.ceil(-expectedInsertions * Math.log(falseProbability) / (Math.log(2) * Math.log(2))));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    // Emits the order unless it was already persisted, Redis failures let the order through
+    // since the write is an idempotent upsert anyway
+    public Mono<Order> filterNew(Order order) {
+        if (!enabled) {
+            return Mono.just(order);
+        }
+        return mightContain(order)
+                .flatMap(maybe -> maybe ? orderRepository.existsByOrderId(order.getOrderId()) : Mono.just(false))
+                .onErrorResume(e -> {
+                    log.warn("Dedupe check failed for order: {}. Error: {}", order.getOrderId(), e.getMessage());
+                    return Mono.just(false);
+                })
+                .flatMap(duplicate -> {
+                    if (duplicate) {
+                        log.debug("Skipping already persisted order: {}", order.getOrderId());
+                        return Mono.empty();
+                    }
+                    return Mono.just(order);
+                });
+    }
+
+    public Mono<List<Order>> filterNew(Collection<Order> orders) {
+        return Flux.fromIterable(orders)
+                .flatMapSequential(this::filterNew)
+                .collectList();
+    }
+
+    public Mono<Void> markPersisted(Order order) {
+        return markPersisted(List.of(order));
+    }
+
+    // One round trip for the whole batch, a lost update only costs a Mongo lookup on redelivery
+    public Mono<Void> markPersisted(Collection<Order> orders) {
+        if (!enabled || orders.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> offsets = new ArrayList<>(orders.size() * hashCount);
+        orders.forEach(order -> offsets.addAll(bitOffsets(order.getOrderId())));
+        return stringRedisTemplate.execute(ADD_SCRIPT, List.of(BLOOM_KEY), offsets)
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Could not record {} persisted orders in the dedupe filter. Error: {}", orders.size(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Boolean> mightContain(Order order) {
+        return stringRedisTemplate.execute(CONTAINS_SCRIPT, List.of(BLOOM_KEY), bitOffsets(order.getOrderId()))
+                .next()
+                .map(found -> found == 1L);
+    }
+
+    // Double hashing (h1 + i * h2) over a 64-bit hash of the order ID
+    List<String> bitOffsets(String orderId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : orderId.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        long h1 = mix(hash);
+        long h2 = mix(h1) | 1;
+        List<String> offsets = new ArrayList<>(hashCount);
+        for (int i = 0; i < hashCount; i++) {
+            offsets.add(String.valueOf(Math.floorMod(h1 + i * h2, bitCount)));
+        }
+        return offsets;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,135 @@
+package com.victorcov.worker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-stage timers and outcome counters of the order pipeline:
+//   order.stage{stage, outcome}     receive, lock, product_enrichment, client_validation, save, retry_delay
+//   order.processed{outcome, cause} saved, duplicate, lock_not_acquired, retry_scheduled, max_retries_reached
+//   order.in_flight                 orders between lock request and completion
+//   order.retry.rate_limited        retries left queued because no 'retryTraffic' permit was free
+// and a periodic summary line with the outcome counts, which replaces the per-order INFO logs
+@Slf4j
+@Component
+public class OrderMetrics {
+    public static final String RECEIVE = "receive";
+    public static final String LOCK = "lock";
+    public static final String PRODUCT_ENRICHMENT = "product_enrichment";
+    public static final String CLIENT_VALIDATION = "client_validation";
+    public static final String SAVE = "save";
+    public static final String RETRY_DELAY = "retry_delay";
+
+    private static final String SUCCESS = "success";
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Double> lastOutcomeTotals = new HashMap<>();
+
+    public OrderMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("order.in_flight", inFlight, AtomicInteger::get)
+                .description("Orders currently being processed by this instance")
+                .register(meterRegistry);
+    }
+
+    // Times the stage from subscription to completion, tagged with the exception type when it fails
+    public <T> Mono<T> timeStage(String stage, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono
+                    .doOnSuccess(value -> recordStage(stage, SUCCESS, System.nanoTime() - start))
+                    .doOnError(e -> recordStage(stage, e.getClass().getSimpleName(), System.nanoTime() - start))
+                    .doOnCancel(() -> recordStage(stage, "cancelled", System.nanoTime() - start));
+        });
+    }
+
+    public <T> Mono<T> trackInFlight(Mono<T> mono) {
+        return Mono.defer(() -> {
+            inFlight.incrementAndGet();
+            return mono.doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    // Time between the record being produced and this instance starting on it
+    public void recordReceived(long recordTimestamp) {
+        if (recordTimestamp > 0) {
+            recordStage(RECEIVE, SUCCESS, TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - recordTimestamp)));
+        }
+    }
+
+    public void recordRetryScheduled(Throwable cause) {
+        recordOutcome("retry_scheduled", cause);
+    }
+
+    // Time a due retry waited in the queue before an instance claimed it, on top of its backoff
+    public void recordRetryClaimed(long dueAt) {
+        recordStage(RETRY_DELAY, "claimed", TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - dueAt)));
+    }
+
+    public void recordRetryRateLimited() {
+        Counter.builder("order.retry.rate_limited")
+                .description("Due retries left queued because the retry rate limit was reached")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordOutcome(String outcome, Throwable cause) {
+        recordOutcome(outcome, cause, 1);
+    }
+
+    public void recordOutcome(String outcome, Throwable cause, int orders) {
+        if (orders <= 0) {
+            return;
+        }
+        Counter.builder("order.processed")
+                .description("Orders by final outcome of a processing attempt")
+                .tag("outcome", outcome)
+                .tag("cause", cause == null ? NONE : cause.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment(orders);
+    }
+
+    @Scheduled(fixedDelayString = "${worker.logging.summary-interval-ms:60000}")
+    public synchronized void logSummary() {
+        Map<String, Double> totals = new TreeMap<>();
+        for (Counter counter : meterRegistry.find("order.processed").counters()) {
+            totals.merge(counter.getId().getTag("outcome"), counter.count(), Double::sum);
+        }
+
+        StringBuilder summary = new StringBuilder("Order summary:");
+        boolean activity = inFlight.get() > 0;
+        for (Map.Entry<String, Double> total : totals.entrySet()) {
+            long delta = (long) (total.getValue() - lastOutcomeTotals.getOrDefault(total.getKey(), 0.0));
+            activity |= delta > 0;
+            summary.append(' ').append(total.getKey()).append('=').append(delta);
+        }
+        summary.append(" in_flight=").append(inFlight.get());
+        lastOutcomeTotals.putAll(totals);
+
+        if (activity) {
+            log.info(summary.toString());
+        }
+    }
+
+    private void recordStage(String stage, String outcome, long nanos) {
+        Timer.builder("order.stage")
+                .description("Duration of each order pipeline stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
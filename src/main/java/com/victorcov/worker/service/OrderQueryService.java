@@ -0,0 +1,41 @@
+package com.victorcov.worker.service;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.OrderDocument;
+import com.victorcov.worker.entity.OrderItem;
+import com.victorcov.worker.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class OrderQueryService {
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductService productService;
+
+
+    // Full documents already hold the enriched products, only slim ones are joined back with the catalog
+    public Mono<Order> findOrder(String orderId) {
+        return orderRepository.findOrderByOrderId(orderId, document -> hydrate(orderId, document));
+    }
+
+    private Mono<Order> hydrate(String orderId, OrderDocument document) {
+        List<String> productIds = document.getItems().stream()
+                .map(OrderItem::getProductId)
+                .toList();
+        return productService.findProducts(productIds)
+                // The stored price snapshot is enough to answer, only the names are missing
+                .onErrorResume(e -> {
+                    log.warn("Could not look up products for order: {}. Error: {}", orderId, e.getMessage());
+                    return Mono.just(Map.of());
+                })
+                .map(document::toOrder);
+    }
+}
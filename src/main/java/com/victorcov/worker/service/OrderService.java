@@ -1,19 +1,29 @@
 package com.victorcov.worker.service;
 
 import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
 import com.victorcov.worker.exceptions.ProductNotFoundException;
 import com.victorcov.worker.repository.OrderRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -21,6 +31,8 @@ public class OrderService {
     private static final int MAX_RETRY_ATTEMPTS = 5;
     private static final String RETRY_PREFIX = "order:retry:";
     private static final String ORDER_LOCK_PREFIX = "order:lock:";
+    private static final long LOCK_WAIT_SECONDS = 5;
+    private static final long LOCK_LEASE_SECONDS = 30;
 
 
     @Autowired
@@ -32,96 +44,216 @@ public class OrderService {
     @Autowired
     private ReactiveRedisTemplate<String, Object> redisTemplate;
     @Autowired
-    private RedissonClient redissonClient;
+    private RedissonReactiveClient redissonReactiveClient;
+    @Autowired
+    private RetryScheduler retryScheduler;
+    @Autowired
+    private DeadLetterService deadLetterService;
+    @Autowired
+    private OrderDeduplicator orderDeduplicator;
+    @Autowired
+    private OrderMetrics orderMetrics;
+    @Autowired
+    private OrderTrace orderTrace;
+    @Autowired
+    private OrderWriteBehindBuffer orderWriteBehindBuffer;
+    @Autowired
+    private RetryBackoff retryBackoff;
 
 
     public void processOrder(Order order) {
+        processOrderWithLock(order)
+                .subscribe(
+                        null,
+                        error -> log.error("Order processing failed for ID: {}. Error: {}", order.getOrderId(), error.getMessage()),
+                        () -> orderTrace.log(log, order.getOrderId(), "Order processed successfully: {}", order.getOrderId())
+                );
+    }
+
+    public Mono<Void> processOrderWithLock(Order order) {
         String lockKey = ORDER_LOCK_PREFIX + order.getOrderId();
-        RLock lock = redissonClient.getLock(lockKey);
-
-        try {
-            // Try to acquire the lock asynchronously with a wait and lease time
-            if (lock.tryLock(5, 10, TimeUnit.SECONDS)) {
-                processOrderLogic(order)
-                        .subscribe(
-                                success -> log.info("Order processed successfully: {}", order.getOrderId()),
-                                error -> log.error("Order processing failed for ID: {}. Error: {}", order.getOrderId(), error.getMessage())
-                        );
-            } else {
-                log.warn("Could not acquire lock for order: {}", order.getOrderId());
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Interrupted while acquiring lock for order: {}", order.getOrderId());
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
-        }
+        RLockReactive lock = redissonReactiveClient.getLock(lockKey);
+        // Reactive locks are owned by an explicit ID instead of the calling thread
+        long lockOwnerId = ThreadLocalRandom.current().nextLong();
+
+        // Acquire the lock without parking the caller and hold it until the whole pipeline has finished
+        return orderMetrics.trackInFlight(Mono.usingWhen(
+                orderMetrics.timeStage(OrderMetrics.LOCK,
+                        lock.tryLock(LOCK_WAIT_SECONDS, LOCK_LEASE_SECONDS, TimeUnit.SECONDS, lockOwnerId)),
+                acquired -> {
+                    if (!acquired) {
+                        log.warn("Could not acquire lock for order: {}", order.getOrderId());
+                        orderMetrics.recordOutcome("lock_not_acquired", null);
+                        return Mono.empty();
+                    }
+                    return processOrderLogic(order);
+                },
+                acquired -> acquired ? releaseLock(lock, lockOwnerId, order) : Mono.empty()
+        ));
+    }
+
+    private Mono<Void> releaseLock(RLockReactive lock, long lockOwnerId, Order order) {
+        return lock.unlock(lockOwnerId)
+                .onErrorResume(e -> {
+                    // The lease may have expired while the order was still being processed
+                    log.warn("Could not release lock for order: {}. Error: {}", order.getOrderId(), e.getMessage());
+                    return Mono.empty();
+                });
     }
 
     public Mono<Void> processOrderLogic(Order order) {
-        return productService.enrichOrderProduct(order)
+        // Redelivered orders that were already persisted are dropped before calling any API.
+        // Product enrichment and client validation are independent, run them together and
+        // let the first failure cancel the other one
+        return orderDeduplicator.filterNew(order)
+                .switchIfEmpty(Mono.fromRunnable(() -> orderMetrics.recordOutcome("duplicate", null)))
+                .flatMap(newOrder -> Mono.zip(
+                        orderMetrics.timeStage(OrderMetrics.PRODUCT_ENRICHMENT,
+                                productService.enrichOrderProduct(newOrder)),
+                        orderMetrics.timeStage(OrderMetrics.CLIENT_VALIDATION,
+                                Mono.defer(() -> clientService.validateClientInOrder(newOrder)))
+                ))
+                .map(Tuple2::getT1)
                 .flatMap(validatedOrder -> {
                     if (validatedOrder.getProducts() == null || validatedOrder.getProducts().isEmpty()) {
                         log.warn("No products found for order: {}", validatedOrder.getOrderId());
                         return Mono.error(new ProductNotFoundException("No products found for order: " + validatedOrder.getOrderId()));
                     }
-                    log.info("Product data enriched for order: {}", validatedOrder.getOrderId());
-                    return clientService.validateClientInOrder(validatedOrder);
+                    orderTrace.log(log, validatedOrder.getOrderId(),
+                            "Product data enriched and client validated for order: {}", validatedOrder.getOrderId());
+                    // Upsert on 'orderId' so a redelivery or retry never fails on the unique index. With write-behind
+                    // the order waits for a shared bulk upsert and only completes once that flush is acknowledged
+                    Mono<Void> save = orderWriteBehindBuffer.isEnabled()
+                            ? orderWriteBehindBuffer.save(validatedOrder)
+                            : orderRepository.upsert(validatedOrder);
+                    return orderMetrics.timeStage(OrderMetrics.SAVE, save)
+                            .then(Mono.defer(() -> orderDeduplicator.markPersisted(validatedOrder)))
+                            .doOnSuccess(unused -> {
+                                orderMetrics.recordOutcome("saved", null);
+                                orderTrace.log(log, validatedOrder.getOrderId(), "Order successfully saved with ID: {}", validatedOrder.getOrderId());
+                            });
                 })
-                .flatMap(validatedOrder -> {
-                    log.info("Client validated for order: {}", validatedOrder.getOrderId());
-                    return orderRepository.save(validatedOrder)
-                            .doOnSuccess(savedOrder ->
-                                    log.info("Order successfully saved with ID: {}", savedOrder.getOrderId())
-                            );
-                })
-                .then() // Converts Mono<Order> to Mono<Void>
-                .doOnError(e -> log.error("Error processing order: {}. Error: {}", order.getOrderId(), e.getMessage()))
+                // Failures are counted per cause in order.processed, the details are only logged for traced orders
                 .onErrorResume(e -> {
-                    log.error("Handling error for order ID: {}. Error: {}", order.getOrderId(), e.getMessage());
-                    handleRetry(order);
-                    return Mono.empty();
+                    orderTrace.log(log, order.getOrderId(), "Handling error for order ID: {}. Error: {}", order.getOrderId(), e.getMessage());
+                    return handleRetry(order, e);
                 });
     }
 
-    private void handleRetry(Order order) {
+    public Mono<Void> processOrders(List<Order> orders) {
+        return orderDeduplicator.filterNew(orders)
+                .doOnNext(newOrders -> orderMetrics.recordOutcome("duplicate", null, orders.size() - newOrders.size()))
+                .flatMap(newOrders -> newOrders.isEmpty() ? Mono.<Void>empty() : processNewOrders(newOrders));
+    }
+
+    private Mono<Void> processNewOrders(List<Order> orders) {
+        List<String> productIds = orders.stream()
+                .flatMap(order -> order.getProducts().stream())
+                .map(Product::getProductId)
+                .distinct()
+                .toList();
+        Map<String, List<Order>> ordersByCustomer = orders.stream()
+                .collect(Collectors.groupingBy(Order::getCustomerId));
+
+        // One product lookup for the whole batch, split into requests of at most
+        // worker.product-api.max-ids-per-request IDs, then one client validation per distinct customer
+        return orderMetrics.timeStage(OrderMetrics.PRODUCT_ENRICHMENT, productService.findProducts(productIds))
+                .onErrorResume(e -> {
+                    log.error("Error looking up products for batch of {} orders. Error: {}", orders.size(), e.getMessage());
+                    return handleRetries(orders, e).then(Mono.empty());
+                })
+                .flatMapMany(products -> Flux.fromIterable(ordersByCustomer.entrySet())
+                        .flatMap(entry -> validateCustomerOrders(entry.getKey(), entry.getValue(), products)))
+                .collectList()
+                .filter(validatedOrders -> !validatedOrders.isEmpty())
+                .flatMap(validatedOrders -> orderMetrics.timeStage(OrderMetrics.SAVE, orderRepository.upsertAll(validatedOrders))
+                        .then(Mono.defer(() -> orderDeduplicator.markPersisted(validatedOrders)))
+                        .doOnSuccess(unused -> {
+                            orderMetrics.recordOutcome("saved", null, validatedOrders.size());
+                            log.debug("Batch of {} orders saved, {} sent to retry", validatedOrders.size(),
+                                    orders.size() - validatedOrders.size());
+                        })
+                        .onErrorResume(e -> {
+                            log.error("Error saving batch of {} orders. Error: {}", validatedOrders.size(), e.getMessage());
+                            return handleRetries(validatedOrders, e);
+                        }))
+                .then();
+    }
+
+    // Only a failed client validation retries the whole group; a retry that cannot be stored
+    // for one order surfaces as is, so the other orders of the customer are not rescheduled
+    private Flux<Order> validateCustomerOrders(String customerId, Collection<Order> orders, Map<String, Product> products) {
+        return orderMetrics.timeStage(OrderMetrics.CLIENT_VALIDATION, clientService.validateClient(customerId))
+                .thenReturn(orders)
+                .onErrorResume(e -> {
+                    log.debug("Handling error for customer ID: {}. Error: {}", customerId, e.getMessage());
+                    return handleRetries(orders, e).then(Mono.empty());
+                })
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(order -> productService.applyProducts(order, products)
+                        .onErrorResume(e -> {
+                            orderTrace.log(log, order.getOrderId(), "Handling error for order ID: {}. Error: {}", order.getOrderId(), e.getMessage());
+                            return handleRetry(order, e).then(Mono.<Order>empty());
+                        }));
+    }
+
+    private Mono<Void> handleRetries(Collection<Order> orders, Throwable cause) {
+        return Flux.fromIterable(orders)
+                .flatMap(order -> handleRetry(order, cause))
+                .then();
+    }
+
+    private Mono<Void> handleRetry(Order order, Throwable cause) {
+        if (isLocalRejection(cause)) {
+            return scheduleRejectedRetry(order, cause);
+        }
         String retryKey = RETRY_PREFIX + order.getOrderId();
         ReactiveValueOperations<String, Object> ops = redisTemplate.opsForValue();
 
-        ops.increment(retryKey)
+        return ops.increment(retryKey)
                 .flatMap(retries -> {
                     if (retries <= MAX_RETRY_ATTEMPTS) {
-                        // Calculate the exponential backoff time based on the number of retries
-                        long backOff = (long) Math.pow(2, retries) * 1000; // 1s, 2s, 4s, etc.
-                        return Mono.delay(Duration.ofMillis(backOff))
-                                .then(reProcessOrder(order, retries)); // Retry order processing
+                        // Exponential backoff with jitter: 1-2s, 2-4s, 4-8s, etc.
+                        Duration backOff = retryBackoff.next(retries);
+                        // Park the order in Redis until it is due, the RetryPoller picks it up from there
+                        return retryScheduler.schedule(order, backOff)
+                                .doOnSuccess(unused -> {
+                                    orderMetrics.recordRetryScheduled(cause);
+                                    orderTrace.log(log, order.getOrderId(), "Order: {} scheduled for retry {} in {}", order.getOrderId(), retries, backOff);
+                                });
                     } else {
                         // If the maximum number of retries is reached, mark the order as failed
-                        return markOrderAsFailed(order);
+                        return markOrderAsFailed(order, cause, retries);
                     }
                 })
-                .doOnError(e -> logError(order, e)) // Log the error in case of failure
-                .onErrorResume(e -> {
-                    // Handle the error and prevent it from being dropped
-                    log.error("Error processing retries for order: {}. Error: {}", order.getOrderId(), e.getMessage());
-                    return Mono.empty(); // Or return a default value if needed
-                })
-                .subscribe();
+                // Let the failure through so the record is not acknowledged before the retry is stored
+                .doOnError(e -> log.error("Error scheduling retry for order: {}. Error: {}", order.getOrderId(), e.getMessage()));
     }
 
-    private Mono<Void> markOrderAsFailed(Order order) {
-        log.error("Max retry attempts ({}) reached for order: {}", MAX_RETRY_ATTEMPTS, order.getOrderId());
-        return Mono.empty();
+    // An open circuit or a full bulkhead rejected the call before it reached the API. That is not a failed attempt,
+    // so the order is parked with the first backoff without using up its retry budget, however long the outage lasts
+    private Mono<Void> scheduleRejectedRetry(Order order, Throwable cause) {
+        Duration backOff = retryBackoff.next(1);
+        return retryScheduler.schedule(order, backOff)
+                .doOnSuccess(unused -> {
+                    orderMetrics.recordRetryScheduled(cause);
+                    orderTrace.log(log, order.getOrderId(), "Order: {} rejected locally, rescheduled in {}", order.getOrderId(), backOff);
+                })
+                .doOnError(e -> log.error("Error scheduling retry for order: {}. Error: {}", order.getOrderId(), e.getMessage()));
     }
 
-    private void logError(Order order, Throwable e) {
-        log.error("Error processing order: {}, Error: {}", order.getOrderId(), e.getMessage());
+    private static boolean isLocalRejection(Throwable cause) {
+        for (Throwable current = cause; current != null; current = current.getCause()) {
+            if (current instanceof CallNotPermittedException || current instanceof BulkheadFullException) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private Mono<Void> reProcessOrder(Order order, Long retries) {
-        log.info("Retrying order: {}, time:{}", order.getOrderId(), retries);
-        return processOrderLogic(order); // Call processOrderLogic for reprocessing
+    private Mono<Void> markOrderAsFailed(Order order, Throwable cause, long attempts) {
+        log.error("Max retry attempts ({}) reached for order: {}", MAX_RETRY_ATTEMPTS, order.getOrderId());
+        return deadLetterService.deadLetter(order, cause, attempts)
+                .doOnSuccess(unused -> orderMetrics.recordOutcome("max_retries_reached", cause));
     }
 }
\ No newline at end of file
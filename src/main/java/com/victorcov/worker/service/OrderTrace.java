@@ -0,0 +1,48 @@
+package com.victorcov.worker.service;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-order log switch: the hot path logs order details at DEBUG, and at INFO for the orders traced here
+@Component
+public class OrderTrace {
+    private final Set<String> tracedOrderIds = ConcurrentHashMap.newKeySet();
+    private final int maxTracedOrders;
+
+    public OrderTrace(@Value("${worker.logging.trace.max-orders:100}") int maxTracedOrders) {
+        this.maxTracedOrders = maxTracedOrders;
+    }
+
+    public boolean isTraced(String orderId) {
+        return !tracedOrderIds.isEmpty() && orderId != null && tracedOrderIds.contains(orderId);
+    }
+
+    // Returns false once the limit is reached, so the switch cannot turn into full logging
+    public boolean enable(String orderId) {
+        if (tracedOrderIds.size() >= maxTracedOrders && !tracedOrderIds.contains(orderId)) {
+            return false;
+        }
+        tracedOrderIds.add(orderId);
+        return true;
+    }
+
+    public void disable(String orderId) {
+        tracedOrderIds.remove(orderId);
+    }
+
+    public Set<String> tracedOrderIds() {
+        return Set.copyOf(tracedOrderIds);
+    }
+
+    public void log(Logger logger, String orderId, String format, Object... args) {
+        if (isTraced(orderId)) {
+            logger.info(format, args);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug(format, args);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.victorcov.worker.service;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.repository.OrderRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Groups validated orders into bulk upserts, each order only completes once the flush holding it is acknowledged
+@Slf4j
+@Component
+public class OrderWriteBehindBuffer {
+    private final OrderRepository orderRepository;
+    private final AtomicInteger pending = new AtomicInteger();
+    // Saves check 'stopped' and emit under the read lock, stop() completes the sink under the write lock,
+    // so an order is either in the sink before it completes or rejected, never dropped with its caller waiting
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private final DistributionSummary flushSizeSummary;
+
+    @Value("${worker.persistence.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${worker.persistence.write-behind.max-batch-size:200}")
+    private int maxBatchSize;
+
+    @Value("${worker.persistence.write-behind.max-delay-ms:10}")
+    private long maxDelayMs;
+
+    @Value("${worker.persistence.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${worker.persistence.write-behind.flush-concurrency:4}")
+    private int flushConcurrency;
+
+    @Value("${worker.kafka.mode:single}")
+    private String kafkaMode;
+
+    private volatile FluxSink<PendingWrite> writes;
+    private boolean stopped;
+
+    public OrderWriteBehindBuffer(OrderRepository orderRepository, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.flushSizeSummary = DistributionSummary.builder("order.write_behind.flush.size")
+                .description("Orders written to MongoDB by a single bulk upsert")
+                .register(meterRegistry);
+        Gauge.builder("order.write_behind.pending", pending, AtomicInteger::get)
+                .description("Validated orders waiting for their bulk upsert")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!"reactive".equalsIgnoreCase(kafkaMode)) {
+            log.warn("Write-behind is enabled with worker.kafka.mode={}, offsets are only held back until the flush "
+                    + "in the reactive mode", kafkaMode);
+        }
+        // Orders are saved from Netty and Redisson threads at the same time. FluxSink queues concurrent emissions
+        // instead of making the callers spin, the 'pending' count bounds how many orders wait.
+        // Flush when the batch is full or the oldest order has waited long enough, whichever comes first.
+        // Fair backpressure keeps orders in the queue while every flush slot is busy
+        Flux.<PendingWrite>create(sink -> writes = sink, FluxSink.OverflowStrategy.BUFFER)
+                .bufferTimeout(maxBatchSize, Duration.ofMillis(maxDelayMs), true)
+                .flatMap(this::flush, flushConcurrency)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writes != null) {
+            // Completing the sink flushes what is still buffered, anything not written before the
+            // MongoDB client closes was never acknowledged and is redelivered from Kafka
+            Lock lock = stopLock.writeLock();
+            lock.lock();
+            try {
+                stopped = true;
+                writes.complete();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public Mono<Void> save(Order order) {
+        return Mono.create(sink -> {
+            // Concurrent saves share the read lock, only stop() waits for them
+            Lock lock = stopLock.readLock();
+            lock.lock();
+            try {
+                boolean full = pending.incrementAndGet() > capacity;
+                if (full || stopped) {
+                    // Full or shut down, fail the order so it goes through the regular retry handling
+                    pending.decrementAndGet();
+                    sink.error(new IllegalStateException("Write-behind buffer rejected order " + order.getOrderId() + ": "
+                            + (full ? "full" : "stopped")));
+                    return;
+                }
+                writes.next(new PendingWrite(order, sink));
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        pending.addAndGet(-batch.size());
+        flushSizeSummary.record(batch.size());
+        log.debug("Flushing {} buffered orders", batch.size());
+
+        // The bulk upsert is idempotent, on failure the whole batch goes back to its callers and is retried
+        return orderRepository.upsertAll(batch.stream().map(PendingWrite::order).toList())
+                .doOnSuccess(unused -> batch.forEach(write -> write.sink().success()))
+                .doOnError(e -> batch.forEach(write -> write.sink().error(e)))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private record PendingWrite(Order order, MonoSink<Void> sink) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.victorcov.worker.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.victorcov.worker.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class ProductCatalogCache {
+    private final AsyncLoadingCache<String, Optional<Product>> cache;
+
+    public ProductCatalogCache(ProductRedisCache productRedisCache,
+                               MeterRegistry meterRegistry,
+                               @Value("${worker.product-cache.maximum-size:10000}") long maximumSize,
+                               @Value("${worker.product-cache.ttl:10m}") Duration ttl,
+                               @Value("${worker.product-cache.refresh-after:5m}") Duration refreshAfter,
+                               @Value("${worker.product-cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                // Products the API did not return expire sooner than real ones
+                .expireAfter(new ProductExpiry(ttl, negativeTtl))
+                // Entries read after this age are reloaded from the Product API in the background while the old
+                // value is served
+                .refreshAfterWrite(refreshAfter)
+                .recordStats()
+                .buildAsync(new ProductLoader(productRedisCache));
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-catalog");
+    }
+
+    // Resolves the given product IDs, misses go to the shared Redis cache and only then to the Product API
+    public Mono<Map<String, Product>> findProducts(Collection<String> productIds) {
+        return Mono.fromFuture(cache.getAll(productIds), true)
+                .map(products -> {
+                    Map<String, Product> found = new LinkedHashMap<>();
+                    products.forEach((id, product) -> product.ifPresent(value -> found.put(id, value)));
+                    return found;
+                });
+    }
+
+    public void invalidate(String productId) {
+        cache.synchronous().invalidate(productId);
+    }
+
+    private record ProductLoader(ProductRedisCache productRedisCache)
+            implements AsyncCacheLoader<String, Optional<Product>> {
+
+        @Override
+        public CompletableFuture<? extends Optional<Product>> asyncLoad(String productId, Executor executor) {
+            return asyncLoadAll(Set.of(productId), executor)
+                    .thenApply(products -> products.get(productId));
+        }
+
+        @Override
+        public CompletableFuture<? extends Map<? extends String, ? extends Optional<Product>>> asyncLoadAll(
+                Set<? extends String> productIds, Executor executor) {
+            Set<String> ids = Set.copyOf(productIds);
+            return toOptionals(ids, productRedisCache.findProducts(ids));
+        }
+
+        @Override
+        public CompletableFuture<? extends Optional<Product>> asyncReload(String productId, Optional<Product> oldValue,
+                                                                          Executor executor) {
+            Set<String> ids = Set.of(productId);
+            return toOptionals(ids, productRedisCache.refreshProducts(ids))
+                    .thenApply(products -> products.get(productId));
+        }
+
+        private static CompletableFuture<Map<String, Optional<Product>>> toOptionals(Set<String> ids,
+                                                                                    Mono<Map<String, Product>> lookup) {
+            return lookup
+                    .map(found -> ids.stream()
+                            .collect(Collectors.toMap(Function.identity(), id -> Optional.ofNullable(found.get(id)))))
+                    .toFuture();
+        }
+    }
+
+    private record ProductExpiry(Duration ttl, Duration negativeTtl) implements Expiry<String, Optional<Product>> {
+
+        @Override
+        public long expireAfterCreate(String productId, Optional<Product> product, long currentTime) {
+            return (product.isPresent() ? ttl : negativeTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String productId, Optional<Product> product, long currentTime, long currentDuration) {
+            return expireAfterCreate(productId, product, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String productId, Optional<Product> product, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.victorcov.worker.service;
+
+import com.victorcov.worker.client.ProductApiClient;
+import com.victorcov.worker.entity.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Component
+public class ProductLookupCoalescer {
+    private final ProductApiClient productApiClient;
+    private final Sinks.Many<Lookup> lookups = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final Counter requestedIdsCounter;
+    private final Counter fetchedIdsCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    @Value("${worker.product-api.coalescing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${worker.product-api.coalescing.window-ms:5}")
+    private long windowMs;
+
+    @Value("${worker.product-api.coalescing.max-batch-size:50}")
+    private int maxBatchSize;
+
+    // The IDs travel in the request line of GET /by-ids, which servers cap at a few KB
+    @Value("${worker.product-api.max-ids-per-request:100}")
+    private int maxIdsPerRequest;
+
+    private Disposable dispatcher;
+
+    public ProductLookupCoalescer(ProductApiClient productApiClient, MeterRegistry meterRegistry) {
+        this.productApiClient = productApiClient;
+        this.requestedIdsCounter = Counter.builder("product.lookup.ids.requested")
+                .description("Product IDs requested by in-flight orders")
+                .register(meterRegistry);
+        this.fetchedIdsCounter = Counter.builder("product.lookup.ids.fetched")
+                .description("Deduplicated product IDs sent to the Product API")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("product.lookup.batch.size")
+                .description("Order lookups served by a single Product API call")
+                .register(meterRegistry);
+        Gauge.builder("product.lookup.coalescing.ratio", this, ProductLookupCoalescer::coalescingRatio)
+                .description("Requested product IDs per product ID actually fetched")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Collect lookups for a short window (or until the batch is full) and serve them with one call
+        dispatcher = lookups.asFlux()
+                .bufferTimeout(maxBatchSize, Duration.ofMillis(windowMs))
+                .flatMap(this::dispatch)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.dispose();
+        }
+    }
+
+    public Mono<Map<String, Product>> findProducts(Collection<String> productIds) {
+        requestedIdsCounter.increment(productIds.size());
+        if (!enabled) {
+            fetchedIdsCounter.increment(productIds.size());
+            batchSizeSummary.record(1);
+            return fetch(productIds);
+        }
+        return Mono.create(sink -> lookups.emitNext(new Lookup(Set.copyOf(productIds), sink),
+                Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100))));
+    }
+
+    private Mono<Void> dispatch(List<Lookup> batch) {
+        Set<String> productIds = new LinkedHashSet<>();
+        batch.forEach(lookup -> productIds.addAll(lookup.productIds()));
+
+        fetchedIdsCounter.increment(productIds.size());
+        batchSizeSummary.record(batch.size());
+        log.debug("Coalesced {} product lookups into one request for {} products", batch.size(), productIds.size());
+
+        // Fan the results back out, each waiting order only sees the products it asked for
+        return fetch(productIds)
+                .doOnNext(products -> batch.forEach(lookup -> lookup.sink().success(select(products, lookup.productIds()))))
+                .doOnError(e -> batch.forEach(lookup -> lookup.sink().error(e)))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    // Splits the IDs over as many Product API calls as needed to stay within 'maxIdsPerRequest' and merges the results
+    private Mono<Map<String, Product>> fetch(Collection<String> productIds) {
+        if (productIds.size() <= maxIdsPerRequest) {
+            return productApiClient.findProducts(productIds);
+        }
+        List<String> ids = List.copyOf(productIds);
+        int chunks = (ids.size() + maxIdsPerRequest - 1) / maxIdsPerRequest;
+        log.debug("Splitting the lookup of {} products into {} requests", ids.size(), chunks);
+        return Flux.range(0, chunks)
+                .flatMap(chunk -> productApiClient.findProducts(
+                        ids.subList(chunk * maxIdsPerRequest, Math.min(ids.size(), (chunk + 1) * maxIdsPerRequest))))
+                .collect(LinkedHashMap::new, Map::putAll);
+    }
+
+    private Map<String, Product> select(Map<String, Product> products, Set<String> productIds) {
+        Map<String, Product> selected = new LinkedHashMap<>();
+        productIds.forEach(id -> {
+            Product product = products.get(id);
+            if (product != null) {
+                selected.put(id, product);
+            }
+        });
+        return selected;
+    }
+
+    private double coalescingRatio() {
+        double fetched = fetchedIdsCounter.count();
+        return fetched == 0 ? 1.0 : requestedIdsCounter.count() / fetched;
+    }
+
+    private record Lookup(Set<String> productIds, MonoSink<Map<String, Product>> sink) {
+    }
+}
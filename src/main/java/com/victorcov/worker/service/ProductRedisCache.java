@@ -0,0 +1,117 @@
+package com.victorcov.worker.service;
+
+import com.victorcov.worker.entity.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Product catalog shared by all worker replicas, sits between the local cache and the Product API
+@Slf4j
+@Component
+public class ProductRedisCache {
+    static final String KEY_PREFIX = "product:";
+
+    private final ReactiveRedisTemplate<String, Product> productRedisTemplate;
+    private final ProductLookupCoalescer productLookupCoalescer;
+    private final boolean enabled;
+    private final Duration ttl;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public ProductRedisCache(@Qualifier("productRedisTemplate") ReactiveRedisTemplate<String, Product> productRedisTemplate,
+                             ProductLookupCoalescer productLookupCoalescer,
+                             MeterRegistry meterRegistry,
+                             @Value("${worker.product-cache.redis.enabled:true}") boolean enabled,
+                             @Value("${worker.product-cache.redis.ttl:30m}") Duration ttl) {
+        this.productRedisTemplate = productRedisTemplate;
+        this.productLookupCoalescer = productLookupCoalescer;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.hitCounter = Counter.builder("product.cache.redis")
+                .description("Product IDs looked up in the shared Redis cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("product.cache.redis")
+                .description("Product IDs looked up in the shared Redis cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    // One MGET for all IDs, only the ones missing in Redis go to the Product API
+    public Mono<Map<String, Product>> findProducts(Collection<String> productIds) {
+        if (!enabled) {
+            return productLookupCoalescer.findProducts(productIds);
+        }
+        List<String> ids = List.copyOf(productIds);
+        return productRedisTemplate.opsForValue()
+                .multiGet(ids.stream().map(ProductRedisCache::key).toList())
+                // Redis being down must not stop orders, fall back to the Product API
+                .onErrorResume(e -> {
+                    log.warn("Product cache lookup in Redis failed, falling back to the Product API: {}", e.getMessage());
+                    return Mono.just(new ArrayList<>());
+                })
+                .flatMap(cached -> {
+                    Map<String, Product> found = new LinkedHashMap<>();
+                    List<String> missing = new ArrayList<>();
+                    for (int i = 0; i < ids.size(); i++) {
+                        Product product = i < cached.size() ? cached.get(i) : null;
+                        if (product != null) {
+                            found.put(ids.get(i), product);
+                        } else {
+                            missing.add(ids.get(i));
+                        }
+                    }
+                    hitCounter.increment(found.size());
+                    missCounter.increment(missing.size());
+                    if (missing.isEmpty()) {
+                        return Mono.just(found);
+                    }
+                    return productLookupCoalescer.findProducts(missing)
+                            .flatMap(fetched -> fill(fetched).thenReturn(fetched))
+                            .map(fetched -> {
+                                found.putAll(fetched);
+                                return found;
+                            });
+                });
+    }
+
+    // Skips the Redis lookup and stores the fresh products for the other replicas. Used for the local cache
+    // refreshes, which would otherwise get back the same Redis entry until its longer TTL runs out
+    public Mono<Map<String, Product>> refreshProducts(Collection<String> productIds) {
+        if (!enabled) {
+            return productLookupCoalescer.findProducts(productIds);
+        }
+        return productLookupCoalescer.findProducts(productIds)
+                .flatMap(fetched -> fill(fetched).thenReturn(fetched));
+    }
+
+    // The SETs are issued together so Lettuce pipelines them on the shared connection instead of one round trip each
+    private Mono<Void> fill(Map<String, Product> products) {
+        return Flux.fromIterable(products.entrySet())
+                .flatMap(entry -> productRedisTemplate.opsForValue().set(key(entry.getKey()), entry.getValue(), ttl))
+                .then()
+                .doOnSuccess(ignored -> log.debug("Stored {} products in the Redis product cache", products.size()))
+                .onErrorResume(e -> {
+                    log.warn("Could not store products in the Redis product cache: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    static String key(String productId) {
+        return KEY_PREFIX + productId;
+    }
+}
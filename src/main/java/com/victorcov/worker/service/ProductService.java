@@ -4,16 +4,22 @@ import com.victorcov.worker.entity.Order;
 import com.victorcov.worker.entity.Product;
 import com.victorcov.worker.exceptions.ProductNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Service
 public class ProductService {
-    private final WebClient webClient = WebClient.create("http://localhost:8081/products");
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+    @Autowired
+    private OrderTrace orderTrace;
 
 
     public Mono<Order> enrichOrderProduct(Order order) {
@@ -23,47 +29,49 @@ public class ProductService {
                 .map(Product::getProductId)
                 .toList();
 
-        return webClient.get()
-                .uri("/by-ids?ids=" + String.join(",",
-                        order.getProducts()
-                                .stream()
-                                .map(Product::getProductId)
-                                .toList()))
-                .exchangeToFlux(response ->
-                        response.bodyToFlux(Product.class)
-                )
+        return findProducts(requestedProductIds)
                 .doOnSubscribe(subscription ->
-                        log.info("Sending request to Product API for order: {}", order.getOrderId())
-                )
-                .doOnNext(product ->
-                        log.info("Received product data: {} - {}", product.getProductId(), product.getName())
+                        orderTrace.log(log, order.getOrderId(), "Looking up products for order: {}", order.getOrderId())
                 )
-                .collectList()
-                .flatMap(products -> {
-                    // Check if any products were returned
-                    if (products.isEmpty()) {
-                        log.warn("No products found for order: {}", order.getOrderId());
-                        return Mono.error(new ProductNotFoundException("Products not found for order: " + order.getOrderId()));
-                    }
-                    // Extract returned product IDs
-                    List<String> returnedProductIds = products.stream()
-                            .map(Product::getProductId)
-                            .toList();
+                .flatMap(products -> applyProducts(order, products));
+    }
 
-                    // Find missing product IDs
-                    List<String> missingProductIds = requestedProductIds.stream()
-                            .filter(id -> !returnedProductIds.contains(id))
-                            .toList();
+    // Looks up the given product IDs through the local catalog cache, keyed by product ID
+    public Mono<Map<String, Product>> findProducts(Collection<String> productIds) {
+        return productCatalogCache.findProducts(productIds);
+    }
 
-                    // Log warning for missing products
-                    if (!missingProductIds.isEmpty()) {
-                        log.warn("Products not found for order {}: {}. Will be ignored", order.getOrderId(), missingProductIds);
-                    }
-                    // Log before setting the products in the order
-                    log.info("Setting enriched products in the order: {}", order.getOrderId());
-                    order.setProducts(products);
-                    return Mono.just(order);
-                });
+    // Replaces the requested products of the order with the fetched ones
+    public Mono<Order> applyProducts(Order order, Map<String, Product> products) {
+        List<String> requestedProductIds = order.getProducts()
+                .stream()
+                .map(Product::getProductId)
+                .toList();
+
+        // A product requested several times stays repeated, that is how the order carries its quantity
+        List<Product> enrichedProducts = requestedProductIds.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        // Check if any products were returned
+        if (enrichedProducts.isEmpty()) {
+            orderTrace.log(log, order.getOrderId(), "No products found for order: {}", order.getOrderId());
+            return Mono.error(new ProductNotFoundException("Products not found for order: " + order.getOrderId()));
+        }
+
+        // Find missing product IDs
+        List<String> missingProductIds = requestedProductIds.stream()
+                .filter(id -> !products.containsKey(id))
+                .toList();
 
+        // Log warning for missing products
+        if (!missingProductIds.isEmpty()) {
+            orderTrace.log(log, order.getOrderId(), "Products not found for order {}: {}. Will be ignored", order.getOrderId(), missingProductIds);
+        }
+        // Log before setting the products in the order
+        orderTrace.log(log, order.getOrderId(), "Setting enriched products in the order: {}", order.getOrderId());
+        order.setProducts(enrichedProducts);
+        return Mono.just(order);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.victorcov.worker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Exponential backoff with jitter: attempt n waits a random time between half and all of min(max, base * 2^n),
+// so orders that failed together during an outage do not all come back in the same poll
+@Component
+public class RetryBackoff {
+    private final Duration base;
+    private final Duration max;
+
+    public RetryBackoff(@Value("${worker.retry.backoff.base:1s}") Duration base,
+                        @Value("${worker.retry.backoff.max:2m}") Duration max) {
+        this.base = base;
+        this.max = max;
+    }
+
+    public Duration next(long attempt) {
+        long ceiling = ceilingMillis(attempt);
+        long half = ceiling / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+    }
+
+    long ceilingMillis(long attempt) {
+        // Stop doubling once the cap is reached instead of overflowing
+        long ceiling = base.toMillis();
+        for (long i = 0; i < attempt && ceiling < max.toMillis(); i++) {
+            ceiling *= 2;
+        }
+        return Math.min(ceiling, max.toMillis());
+    }
+}
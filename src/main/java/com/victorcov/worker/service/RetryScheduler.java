@@ -0,0 +1,105 @@
+package com.victorcov.worker.service;
+
+import com.google.gson.Gson;
+import com.victorcov.worker.entity.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class RetryScheduler {
+    // Kept apart from the per-order attempt counters under 'order:retry:<orderId>'
+    private static final String RETRY_QUEUE_KEY = "order:retryq:queue";
+    private static final String RETRY_PAYLOAD_KEY = "order:retryq:payload";
+    private static final Gson gson = new Gson();
+
+    // Stores the order and (re)schedules it at its due time
+    private static final RedisScript<Long> SCHEDULE_SCRIPT = RedisScript.of("""
+            redis.call('HSET', KEYS[2], ARGV[1], ARGV[3])
+            return redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+            """, Long.class);
+
+    // Claims due orders by pushing their score to the end of the lease, so an instance that dies while
+    // processing them only delays the retry instead of losing it. Returns each payload followed by its due time
+    private static final RedisScript<List<String>> CLAIM_SCRIPT = stringListScript("""
+            local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'WITHSCORES', 'LIMIT', 0, ARGV[2])
+            local claimed = {}
+            for i = 1, #due, 2 do
+                local payload = redis.call('HGET', KEYS[2], due[i])
+                if payload then
+                    redis.call('ZADD', KEYS[1], ARGV[3], due[i])
+                    table.insert(claimed, payload)
+                    table.insert(claimed, due[i + 1])
+                else
+                    redis.call('ZREM', KEYS[1], due[i])
+                end
+            end
+            return claimed
+            """);
+
+    // Removes a claimed order unless it was scheduled again while being processed
+    private static final RedisScript<Long> COMPLETE_SCRIPT = RedisScript.of("""
+            if tonumber(redis.call('ZSCORE', KEYS[1], ARGV[1])) == tonumber(ARGV[2]) then
+                redis.call('ZREM', KEYS[1], ARGV[1])
+                redis.call('HDEL', KEYS[2], ARGV[1])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate stringRedisTemplate;
+
+    @Value("${worker.retry.lease:60s}")
+    private Duration lease;
+
+
+    public Mono<Void> schedule(Order order, Duration delay) {
+        long dueAt = System.currentTimeMillis() + delay.toMillis();
+        return stringRedisTemplate.execute(SCHEDULE_SCRIPT, List.of(RETRY_QUEUE_KEY, RETRY_PAYLOAD_KEY),
+                        List.of(order.getOrderId(), String.valueOf(dueAt), gson.toJson(order)))
+                .then();
+    }
+
+    // Claims up to 'limit' due orders, every order is handed to a single instance at a time
+    public Flux<RetryTask> claimDue(int limit) {
+        long now = System.currentTimeMillis();
+        long claimedUntil = now + lease.toMillis();
+        return stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(RETRY_QUEUE_KEY, RETRY_PAYLOAD_KEY),
+                        List.of(String.valueOf(now), String.valueOf(limit), String.valueOf(claimedUntil)))
+                .flatMapIterable(claimed -> {
+                    List<RetryTask> tasks = new ArrayList<>(claimed.size() / 2);
+                    for (int i = 0; i < claimed.size(); i += 2) {
+                        Order order = gson.fromJson(claimed.get(i), Order.class);
+                        tasks.add(new RetryTask(order, (long) Double.parseDouble(claimed.get(i + 1)), claimedUntil));
+                    }
+                    return tasks;
+                });
+    }
+
+    public Mono<Void> complete(RetryTask task) {
+        return stringRedisTemplate.execute(COMPLETE_SCRIPT, List.of(RETRY_QUEUE_KEY, RETRY_PAYLOAD_KEY),
+                        List.of(task.order().getOrderId(), String.valueOf(task.claimedUntil())))
+                .then();
+    }
+
+    // RedisScript.of only takes a raw List.class, the string template reads every element of the reply as a String
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<String>> stringListScript(String script) {
+        return (RedisScript) RedisScript.of(script, List.class);
+    }
+
+    // 'dueAt' is when the order became due, its backoff or the lease of an earlier claim that ran out
+    public record RetryTask(Order order, long dueAt, long claimedUntil) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.victorcov.worker.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.config.HttpClientConfig;
+import com.victorcov.worker.exceptions.ClientNotFoundException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ClientApiClientTest {
+
+    private final AtomicReference<HttpResponseStatus> status = new AtomicReference<>(HttpResponseStatus.OK);
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ClientApiClient clientApiClient;
+
+    @BeforeEach
+    public void setup() {
+        // Client API stub answering with the status the test sets
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/clients/{id}", (request, response) -> response.status(status.get())
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just("{\"customerId\":\"" + request.param("id") + "\",\"isActive\":true}"))))
+                .bindNow();
+
+        HttpClientConfig config = new HttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 10);
+        ReflectionTestUtils.setField(config, "pendingAcquireMaxCount", 10);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "maxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "maxLifeTime", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "responseTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "keepAlive", true);
+        ReflectionTestUtils.setField(config, "compression", true);
+        ReflectionTestUtils.setField(config, "clientApiBaseUrl", "http://localhost:" + server.port() + "/clients");
+        connectionProvider = config.apiConnectionProvider();
+
+        WebClient webClient = config.clientApiWebClient(WebClient.builder(), config.apiHttpClient(connectionProvider));
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        clientApiClient = new ClientApiClient(webClient, circuitBreakerRegistry, BulkheadRegistry.ofDefaults(),
+                new SimpleMeterRegistry(), Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    @Test
+    public void testFindClient_Found() {
+        StepVerifier.create(clientApiClient.findClient("customer-001"))
+                .assertNext(client -> assertEquals("customer-001", client.getCustomerId()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testFindClient_NotFound() {
+        status.set(HttpResponseStatus.NOT_FOUND);
+
+        StepVerifier.create(clientApiClient.findClient("customer-404"))
+                .expectError(ClientNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    public void testFindClient_ServerErrorIsRecordedByCircuitBreaker() {
+        status.set(HttpResponseStatus.SERVICE_UNAVAILABLE);
+
+        // Verify the 503 fails the call instead of completing empty like a valid client
+        StepVerifier.create(clientApiClient.findClient("customer-001"))
+                .expectErrorSatisfies(e -> assertEquals(503,
+                        ((WebClientResponseException) e).getStatusCode().value()))
+                .verify();
+        assertEquals(1, circuitBreakerRegistry.circuitBreaker("clientApi").getMetrics().getNumberOfFailedCalls());
+    }
+}
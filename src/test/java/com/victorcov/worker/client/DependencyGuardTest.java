@@ -0,0 +1,70 @@
+package com.victorcov.worker.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+public class DependencyGuardTest {
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DependencyGuard guard;
+
+    @BeforeEach
+    public void setup() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        meterRegistry = new SimpleMeterRegistry();
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        guard = new DependencyGuard("productApi", circuitBreakerRegistry, bulkheadRegistry, meterRegistry, Duration.ofMillis(100));
+    }
+
+    @Test
+    public void testProtect_OpenCircuitSkipsCall() {
+        circuitBreakerRegistry.circuitBreaker("productApi").transitionToOpenState();
+        PublisherProbe<String> call = PublisherProbe.of(Mono.just("product-101"));
+
+        StepVerifier.create(guard.protect(call.mono()))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+
+        // Verify the downstream call was never made and the rejection was counted
+        call.assertWasNotSubscribed();
+        assertEquals(1.0, meterRegistry.get("dependency.calls.rejected").tag("reason", "circuit_open").counter().count());
+    }
+
+    @Test
+    public void testProtect_BulkheadRejectsExtraCalls() {
+        guard.protect(Mono.never()).subscribe();
+
+        StepVerifier.create(guard.protect(Mono.just("product-101")))
+                .expectError(BulkheadFullException.class)
+                .verify();
+
+        assertEquals(1.0, meterRegistry.get("dependency.calls.rejected").tag("reason", "bulkhead_full").counter().count());
+    }
+
+    @Test
+    public void testProtect_SlowCallTimesOut() {
+        StepVerifier.create(guard.protect(Mono.never()))
+                .expectError(TimeoutException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,103 @@
+package com.victorcov.worker.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.config.HttpClientConfig;
+import com.victorcov.worker.entity.Product;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ProductApiClientTest {
+
+    private final AtomicReference<String> requestedUri = new AtomicReference<>();
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private final AtomicReference<HttpResponseStatus> status = new AtomicReference<>(HttpResponseStatus.OK);
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private ProductApiClient productApiClient;
+
+    @BeforeEach
+    public void setup() {
+        // Product API stub that gzips its responses
+        server = HttpServer.create()
+                .port(0)
+                .compress(true)
+                .route(routes -> routes.get("/products/by-ids", (request, response) -> {
+                    requestedUri.set(request.uri());
+                    acceptEncoding.set(request.requestHeaders().get("Accept-Encoding"));
+                    return response.status(status.get())
+                            .header("Content-Type", "application/json")
+                            .sendString(Mono.just(
+                                    "[{\"productId\":\"product-101\",\"name\":\"Laptop\",\"price\":1200.0}]"));
+                }))
+                .bindNow();
+
+        HttpClientConfig config = new HttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 10);
+        ReflectionTestUtils.setField(config, "pendingAcquireMaxCount", 10);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "maxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "maxLifeTime", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "responseTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(config, "keepAlive", true);
+        ReflectionTestUtils.setField(config, "compression", true);
+        ReflectionTestUtils.setField(config, "productApiBaseUrl", "http://localhost:" + server.port() + "/products");
+        connectionProvider = config.apiConnectionProvider();
+
+        WebClient webClient = config.productApiWebClient(WebClient.builder(), config.apiHttpClient(connectionProvider));
+        productApiClient = new ProductApiClient(webClient, CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+                new SimpleMeterRegistry(), Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    @Test
+    public void testFindProducts_GzippedResponseFromConfiguredBaseUrl() {
+        StepVerifier.create(productApiClient.findProducts(List.of("product-101", "product-1002")))
+                .assertNext(products -> {
+                    Product laptop = products.get("product-101");
+                    assertEquals("Laptop", laptop.getName());
+                    assertEquals(1, products.size());
+                })
+                .verifyComplete();
+
+        // Verify the IDs were sent in one call and gzip was negotiated
+        assertEquals("/products/by-ids?ids=product-101%2Cproduct-1002", requestedUri.get());
+        assertEquals("gzip", acceptEncoding.get());
+    }
+
+    @Test
+    public void testFindProducts_ServerErrorIsAnError() {
+        // Product API stub answering 503 with a body that would still decode as products
+        status.set(HttpResponseStatus.SERVICE_UNAVAILABLE);
+
+        // Verify the 503 fails the call instead of returning products or an empty catalog
+        StepVerifier.create(productApiClient.findProducts(List.of("product-101")))
+                .expectErrorSatisfies(e -> assertEquals(503,
+                        ((WebClientResponseException) e).getStatusCode().value()))
+                .verify();
+    }
+}
@@ -12,6 +12,9 @@ import com.victorcov.worker.service.OrderService;
 import com.victorcov.worker.entity.Order;
 import com.victorcov.worker.exceptions.ClientNotFoundException;
 import com.victorcov.worker.exceptions.ProductNotFoundException;
+import com.victorcov.worker.serialization.OrderDeserializer;
+
+import java.nio.charset.StandardCharsets;
 
 @ExtendWith(MockitoExtension.class)
 public class OrderConsumerTest {
@@ -28,7 +31,7 @@ public class OrderConsumerTest {
         String message = "{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"products\":[{\"productId\":\"product-101\"},{\"productId\":\"product-1002\"}]}";
 
         // When: OrderConsumer receives a message
-        orderConsumer.consume(message);
+        orderConsumer.consume(deserialize(message));
 
         // Then: Verify that orderService processes the parsed order
         verify(orderService, times(1)).processOrder(any(Order.class));
@@ -44,7 +47,7 @@ public class OrderConsumerTest {
                 .when(orderService).processOrder(any(Order.class));
 
         // When & Then: OrderConsumer tries to process the message and fails due to client not found
-        assertThrows(ClientNotFoundException.class, () -> orderConsumer.consume(message));
+        assertThrows(ClientNotFoundException.class, () -> orderConsumer.consume(deserialize(message)));
 
         // Verify that orderService was called but failed
         verify(orderService, times(1)).processOrder(any(Order.class));
@@ -60,7 +63,7 @@ public class OrderConsumerTest {
                 .when(orderService).processOrder(any(Order.class));
 
         // When & Then: OrderConsumer tries to process the message and fails due to product not found
-        assertThrows(ProductNotFoundException.class, () -> orderConsumer.consume(message));
+        assertThrows(ProductNotFoundException.class, () -> orderConsumer.consume(deserialize(message)));
 
         // Verify that orderService was called but failed
         verify(orderService, times(1)).processOrder(any(Order.class));
@@ -72,7 +75,7 @@ public class OrderConsumerTest {
         String invalidMessage = "{\"orderId\":\"\",\"customerId\":\"customer-001\",\"products\":[]}";
 
         // When: OrderConsumer tries to process the invalid message
-        orderConsumer.consume(invalidMessage);
+        orderConsumer.consume(deserialize(invalidMessage));
 
         // Then: Verify no processing is done
         verify(orderService, never()).processOrder(any(Order.class));
@@ -84,9 +87,14 @@ public class OrderConsumerTest {
         String invalidMessage = "{\"theBadMessage\":\"Very bad message\"}";
 
         // When: OrderConsumer tries to process the invalid message
-        orderConsumer.consume(invalidMessage);
+        orderConsumer.consume(deserialize(invalidMessage));
 
         // Then: Verify no processing is done
         verify(orderService, never()).processOrder(any(Order.class));
     }
+
+    private Order deserialize(String message) {
+        // Kafka hands the listener whatever OrderDeserializer made of the record bytes
+        return new OrderDeserializer().deserialize("orders_topic", message.getBytes(StandardCharsets.UTF_8));
+    }
 }
\ No newline at end of file
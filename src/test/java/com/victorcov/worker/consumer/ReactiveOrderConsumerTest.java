@@ -0,0 +1,117 @@
+package com.victorcov.worker.consumer;
+
+import static org.mockito.Mockito.*;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.serialization.OrderDeserializer;
+import com.victorcov.worker.service.OrderMetrics;
+import com.victorcov.worker.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveOrderConsumerTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private ReceiverOffset receiverOffset;
+
+    @Spy
+    private OrderMetrics orderMetrics = new OrderMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private ReactiveOrderConsumer reactiveOrderConsumer;
+
+    @Test
+    public void testConsume_AcknowledgedAfterProcessing() {
+        // Given: Example Kafka record whose processing completes later
+        String message = "{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"products\":[{\"productId\":\"product-101\"}]}";
+        Sinks.Empty<Void> processed = Sinks.empty();
+        when(orderService.processOrderWithLock(any(Order.class))).thenReturn(processed.asMono());
+
+        // When & Then: the offset is only acknowledged once the order pipeline completes
+        StepVerifier.create(reactiveOrderConsumer.consume(record(message)))
+                .then(() -> verify(receiverOffset, never()).acknowledge())
+                .then(processed::tryEmitEmpty)
+                .verifyComplete();
+
+        verify(receiverOffset, times(1)).acknowledge();
+    }
+
+    @Test
+    public void testConsume_FailedProcessingIsNotAcknowledged() {
+        String message = "{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"products\":[{\"productId\":\"product-101\"}]}";
+        when(orderService.processOrderWithLock(any(Order.class)))
+                .thenReturn(Mono.error(new IllegalStateException("Redis unavailable")));
+
+        StepVerifier.create(reactiveOrderConsumer.consume(record(message)))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(receiverOffset, never()).acknowledge();
+    }
+
+    @Test
+    public void testConsume_InvalidMessageIsSkipped() {
+        String invalidMessage = "{\"theBadMessage\":\"Very bad message\"}";
+
+        StepVerifier.create(reactiveOrderConsumer.consume(record(invalidMessage)))
+                .verifyComplete();
+
+        // Verify no processing is done and the offset is not held back
+        verify(orderService, never()).processOrderWithLock(any(Order.class));
+        verify(receiverOffset, times(1)).acknowledge();
+    }
+
+    @Test
+    public void testProcess_SameKeyInOrderOtherKeysInParallel() {
+        // Given: two records of the same order and one of another order
+        ReflectionTestUtils.setField(reactiveOrderConsumer, "concurrency", 4);
+        ReflectionTestUtils.setField(reactiveOrderConsumer, "orderingKey", "orderId");
+        String first = "{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"products\":[{\"productId\":\"product-101\"}]}";
+        String second = "{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"products\":[{\"productId\":\"product-1002\"}]}";
+        String other = "{\"orderId\":\"order-010\",\"customerId\":\"customer-002\",\"products\":[{\"productId\":\"product-101\"}]}";
+        Sinks.Empty<Void> firstProcessed = Sinks.empty();
+        when(orderService.processOrderWithLock(any(Order.class))).thenReturn(firstProcessed.asMono(), Mono.empty(), Mono.empty());
+        Sinks.Many<ReceiverRecord<String, Order>> records = Sinks.many().unicast().onBackpressureBuffer();
+
+        // When & Then: the second record of order-009 waits for the first one, order-010 does not
+        StepVerifier.create(reactiveOrderConsumer.process(records.asFlux()))
+                .then(() -> {
+                    records.tryEmitNext(record(first));
+                    records.tryEmitNext(record(second));
+                    records.tryEmitNext(record(other));
+                })
+                .then(() -> {
+                    verify(orderService, times(2)).processOrderWithLock(any(Order.class));
+                    verify(receiverOffset, times(1)).acknowledge();
+                })
+                .then(firstProcessed::tryEmitEmpty)
+                .then(records::tryEmitComplete)
+                .verifyComplete();
+
+        verify(orderService, times(3)).processOrderWithLock(any(Order.class));
+        verify(receiverOffset, times(3)).acknowledge();
+    }
+
+    private ReceiverRecord<String, Order> record(String message) {
+        Order order = new OrderDeserializer().deserialize("orders_topic", message.getBytes(StandardCharsets.UTF_8));
+        return new ReceiverRecord<>(new ConsumerRecord<>("orders_topic", 0, 0L, null, order), receiverOffset);
+    }
+}
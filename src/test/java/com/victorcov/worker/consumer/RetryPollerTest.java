@@ -0,0 +1,149 @@
+package com.victorcov.worker.consumer;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.service.OrderMetrics;
+import com.victorcov.worker.service.OrderService;
+import com.victorcov.worker.service.RetryScheduler;
+import com.victorcov.worker.service.RetryScheduler.RetryTask;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+public class RetryPollerTest {
+
+    @Mock
+    private RetryScheduler retryScheduler;
+
+    @Mock
+    private OrderService orderService;
+
+    // One retry per minute without waiting for a permit
+    @Spy
+    private RateLimiterRegistry rateLimiterRegistry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+            .limitForPeriod(1)
+            .limitRefreshPeriod(Duration.ofMinutes(1))
+            .timeoutDuration(Duration.ZERO)
+            .build());
+
+    @Spy
+    private CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private OrderMetrics orderMetrics = new OrderMetrics(meterRegistry);
+
+    @InjectMocks
+    private RetryPoller retryPoller;
+
+    private RetryTask task;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(retryPoller, "batchSize", 100);
+        ReflectionTestUtils.setField(retryPoller, "concurrency", 4);
+        Order order = Order.builder()
+                .orderId("order-009")
+                .customerId("customer-001")
+                .products(List.of(Product.builder().productId("product-101").build()))
+                .build();
+        task = new RetryTask(order, System.currentTimeMillis() - 5000, System.currentTimeMillis() + 60000);
+    }
+
+    @Test
+    public void testPoll_CompletesProcessedOrders() {
+        when(retryScheduler.claimDue(100)).thenReturn(Flux.just(task));
+        when(orderService.processOrderLogic(task.order())).thenReturn(Mono.empty());
+        when(retryScheduler.complete(task)).thenReturn(Mono.empty());
+
+        retryPoller.poll();
+
+        verify(orderService, times(1)).processOrderLogic(task.order());
+        verify(retryScheduler, times(1)).complete(task);
+
+        // Verify the retry delay is the time the order waited since it was due
+        Timer retryDelay = meterRegistry.get("order.stage").tag("stage", "retry_delay").timer();
+        assertEquals(1, retryDelay.count());
+        assertTrue(retryDelay.totalTime(TimeUnit.MILLISECONDS) >= 5000);
+    }
+
+    @Test
+    public void testPoll_FailedAttemptKeepsClaim() {
+        when(retryScheduler.claimDue(100)).thenReturn(Flux.just(task));
+        when(orderService.processOrderLogic(task.order()))
+                .thenReturn(Mono.error(new IllegalStateException("Redis unavailable")));
+
+        retryPoller.poll();
+
+        // Verify the claim is left to expire so the order is retried later
+        verify(retryScheduler, never()).complete(any(RetryTask.class));
+    }
+
+    @Test
+    public void testPoll_RetryTrafficIsRateLimited() {
+        // Mock two due orders while the rate limiter has a single permit
+        Order other = Order.builder()
+                .orderId("order-010")
+                .customerId("customer-001")
+                .products(task.order().getProducts())
+                .build();
+        RetryTask otherTask = new RetryTask(other, task.dueAt(), task.claimedUntil());
+        when(retryScheduler.claimDue(100)).thenReturn(Flux.just(task, otherTask));
+        when(orderService.processOrderLogic(any(Order.class))).thenReturn(Mono.empty());
+        when(retryScheduler.complete(any(RetryTask.class))).thenReturn(Mono.empty());
+
+        retryPoller.poll();
+
+        // Verify only one order was retried, the other one keeps its claim and comes back later
+        verify(orderService, times(1)).processOrderLogic(any(Order.class));
+        verify(retryScheduler, times(1)).complete(any(RetryTask.class));
+        assertEquals(1.0, meterRegistry.get("order.retry.rate_limited").counter().count());
+    }
+
+    @Test
+    public void testPoll_PausedWhileDependencyCircuitIsOpen() {
+        circuitBreakerRegistry.circuitBreaker("productApi").transitionToOpenState();
+
+        retryPoller.poll();
+
+        // Verify nothing is claimed so the retries stay queued for when the API has recovered
+        verify(retryScheduler, never()).claimDue(anyInt());
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void testPoll_RetriesProbeHalfOpenCircuitWithoutOtherTraffic() {
+        circuitBreakerRegistry.circuitBreaker("productApi").transitionToOpenState();
+        circuitBreakerRegistry.circuitBreaker("productApi").transitionToHalfOpenState();
+        when(retryScheduler.claimDue(100)).thenReturn(Flux.just(task));
+        when(orderService.processOrderLogic(task.order())).thenReturn(Mono.empty());
+        when(retryScheduler.complete(task)).thenReturn(Mono.empty());
+
+        retryPoller.poll();
+
+        // Verify the retry is processed so it can serve as a trial call for the half-open circuit
+        verify(orderService, times(1)).processOrderLogic(task.order());
+        verify(retryScheduler, times(1)).complete(task);
+    }
+}
@@ -0,0 +1,65 @@
+package com.victorcov.worker.serialization;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class OrderBinaryCodecTest {
+
+    private final Order order = Order.builder()
+            .orderId("order-009")
+            .customerId("customer-001")
+            .products(List.of(
+                    Product.builder().productId("product-101").name("Laptop ñ").price(1200.5).build(),
+                    Product.builder().productId("product-1002").build()))
+            .build();
+
+    @Test
+    public void testRoundTrip() {
+        byte[] encoded = OrderBinaryCodec.encode(order);
+
+        assertEquals(OrderBinaryCodec.SCHEMA_VERSION, encoded[0]);
+        assertEquals(order, OrderBinaryCodec.decode(encoded));
+    }
+
+    @Test
+    public void testDecode_InvalidPayloads() {
+        byte[] encoded = OrderBinaryCodec.encode(order);
+
+        // Truncated at every position, unknown schema version, empty
+        for (int length = 0; length < encoded.length; length++) {
+            assertNull(OrderBinaryCodec.decode(Arrays.copyOf(encoded, length)));
+        }
+        byte[] futureVersion = encoded.clone();
+        futureVersion[0] = 2;
+        assertNull(OrderBinaryCodec.decode(futureVersion));
+        assertNull(OrderBinaryCodec.decode(null));
+    }
+
+    @Test
+    public void testDeserializer_SelectsDecoderFromHeader() {
+        // Serialize the same order once per format, the format is recorded in the headers
+        OrderSerializer serializer = new OrderSerializer();
+        OrderDeserializer deserializer = new OrderDeserializer();
+        RecordHeaders binaryHeaders = new RecordHeaders();
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        serializer.configure(Map.of(OrderSerializer.FORMAT_CONFIG, "json"), false);
+        byte[] json = serializer.serialize("orders_topic", jsonHeaders, order);
+        serializer.configure(Map.of(OrderSerializer.FORMAT_CONFIG, "binary"), false);
+        byte[] binary = serializer.serialize("orders_topic", binaryHeaders, order);
+
+        // Verify the binary record is smaller and both are decoded according to their header
+        assertTrue(binary.length < json.length);
+        assertEquals(order, deserializer.deserialize("orders_topic", binaryHeaders, binary));
+        assertEquals(order, deserializer.deserialize("orders_topic", jsonHeaders, json));
+        // Records without the header are still read as JSON
+        assertEquals(order, deserializer.deserialize("orders_topic", new RecordHeaders(), json));
+    }
+}
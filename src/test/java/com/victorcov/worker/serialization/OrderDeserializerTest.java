@@ -0,0 +1,51 @@
+package com.victorcov.worker.serialization;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Order;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class OrderDeserializerTest {
+
+    private final OrderDeserializer deserializer = new OrderDeserializer();
+
+    @Test
+    public void testDeserialize_ValidOrder() {
+        Order order = deserialize("{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"ignored\":{\"a\":[1,2]},"
+                + "\"products\":[{\"productId\":\"product-101\",\"name\":\"Laptop\",\"price\":1200.0},{\"productId\":\"product-1002\"}]}");
+
+        assertNotNull(order);
+        assertEquals("order-009", order.getOrderId());
+        assertEquals("customer-001", order.getCustomerId());
+        assertEquals(2, order.getProducts().size());
+        assertEquals("Laptop", order.getProducts().get(0).getName());
+        assertEquals(1200.0, order.getProducts().get(0).getPrice());
+        assertEquals("product-1002", order.getProducts().get(1).getProductId());
+    }
+
+    @Test
+    public void testDeserialize_InvalidOrders() {
+        // Missing or empty required fields
+        assertNull(deserialize("{\"theBadMessage\":\"Very bad message\"}"));
+        assertNull(deserialize("{\"orderId\":\"order-009\",\"customerId\":\"\",\"products\":[{\"productId\":\"product-101\"}]}"));
+        assertNull(deserialize("{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"products\":[]}"));
+        assertNull(deserialize("{\"orderId\":\"order-009\",\"customerId\":\"customer-001\",\"products\":[{\"productId\":\"\"}]}"));
+        assertNull(deserialize("{\"customerId\":\"customer-001\",\"products\":[{\"productId\":\"product-101\"}]}"));
+    }
+
+    @Test
+    public void testDeserialize_MalformedRecords() {
+        // Broken JSON and empty records never throw
+        assertNull(deserialize("{\"orderId\":\"order-009\",\"customerId\":"));
+        assertNull(deserialize("not json at all"));
+        assertNull(deserialize("[1,2,3]"));
+        assertNull(deserializer.deserialize("orders_topic", null));
+        assertNull(deserializer.deserialize("orders_topic", new byte[0]));
+    }
+
+    private Order deserialize(String message) {
+        return deserializer.deserialize("orders_topic", message.getBytes(StandardCharsets.UTF_8));
+    }
+}
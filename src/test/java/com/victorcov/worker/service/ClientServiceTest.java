@@ -0,0 +1,84 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+
+import com.victorcov.worker.client.ClientApiClient;
+import com.victorcov.worker.entity.Client;
+import com.victorcov.worker.exceptions.ClientInactiveException;
+import com.victorcov.worker.exceptions.ClientNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@ExtendWith(MockitoExtension.class)
+public class ClientServiceTest {
+
+    @Mock
+    private ClientApiClient clientApiClient;
+
+    private ClientService clientService;
+
+    @BeforeEach
+    public void setup() {
+        clientService = new ClientService(clientApiClient, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1), Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void testValidateClient_ConcurrentLookupsShareOneRequest() {
+        Sinks.One<Client> response = Sinks.one();
+        when(clientApiClient.findClient("customer-001")).thenReturn(response.asMono());
+
+        // Both validations wait on the same in-flight request
+        Mono<Void> both = Mono.when(clientService.validateClient("customer-001"), clientService.validateClient("customer-001"));
+        StepVerifier.create(both)
+                .then(() -> response.tryEmitValue(Client.builder().customerId("customer-001").isActive(true).build()))
+                .verifyComplete();
+
+        // A later validation is served from the cache
+        StepVerifier.create(clientService.validateClient("customer-001"))
+                .verifyComplete();
+
+        verify(clientApiClient, times(1)).findClient("customer-001");
+    }
+
+    @Test
+    public void testValidateClient_NotFoundIsNegativelyCached() {
+        when(clientApiClient.findClient("customer-404"))
+                .thenReturn(Mono.error(new ClientNotFoundException("Client not found with ID: customer-404")));
+
+        StepVerifier.create(clientService.validateClient("customer-404"))
+                .expectError(ClientNotFoundException.class)
+                .verify();
+        StepVerifier.create(clientService.validateClient("customer-404"))
+                .expectError(ClientNotFoundException.class)
+                .verify();
+
+        verify(clientApiClient, times(1)).findClient("customer-404");
+    }
+
+    @Test
+    public void testValidateClient_InvalidateReloadsStatus() {
+        when(clientApiClient.findClient("customer-002"))
+                .thenReturn(Mono.just(Client.builder().customerId("customer-002").isActive(false).build()))
+                .thenReturn(Mono.just(Client.builder().customerId("customer-002").isActive(true).build()));
+
+        StepVerifier.create(clientService.validateClient("customer-002"))
+                .expectError(ClientInactiveException.class)
+                .verify();
+
+        clientService.invalidate("customer-002");
+
+        StepVerifier.create(clientService.validateClient("customer-002"))
+                .verifyComplete();
+        verify(clientApiClient, times(2)).findClient("customer-002");
+    }
+}
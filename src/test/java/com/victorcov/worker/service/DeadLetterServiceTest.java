@@ -0,0 +1,100 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.config.KafkaConfig;
+import com.victorcov.worker.entity.FailedOrder;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.exceptions.ProductNotFoundException;
+import com.victorcov.worker.repository.FailedOrderRepository;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@ExtendWith(MockitoExtension.class)
+public class DeadLetterServiceTest {
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private FailedOrderRepository failedOrderRepository;
+
+    @InjectMocks
+    private DeadLetterService deadLetterService;
+
+    private Order order;
+
+    @BeforeEach
+    public void setup() {
+        order = Order.builder()
+                .orderId("order-009")
+                .customerId("customer-001")
+                .products(List.of(Product.builder().productId("product-101").build()))
+                .build();
+    }
+
+    @Test
+    public void testDeadLetter_PublishesWithHeadersAndStoresCopy() {
+        // Mock the dead-letter topic and the 'failed_orders' collection accepting the order
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(failedOrderRepository.upsert(any(FailedOrder.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(deadLetterService.deadLetter(order, new ProductNotFoundException("No products found"), 6))
+                .verifyComplete();
+
+        // Verify the record carries the order and the failure details as headers
+        ArgumentCaptor<ProducerRecord<String, String>> record = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(1)).send(record.capture());
+        assertEquals(KafkaConfig.ORDERS_DLT_TOPIC, record.getValue().topic());
+        assertEquals("order-009", record.getValue().key());
+        assertTrue(record.getValue().value().contains("\"orderId\":\"order-009\""));
+        assertEquals("ProductNotFoundException", header(record.getValue(), DeadLetterService.FAILURE_TYPE_HEADER));
+        assertEquals("No products found", header(record.getValue(), DeadLetterService.FAILURE_CAUSE_HEADER));
+        assertEquals("6", header(record.getValue(), DeadLetterService.ATTEMPTS_HEADER));
+        assertNotNull(header(record.getValue(), DeadLetterService.FAILED_AT_HEADER));
+
+        // Verify the copy for replay is upserted on 'orderId' instead of inserted
+        ArgumentCaptor<FailedOrder> failedOrder = ArgumentCaptor.forClass(FailedOrder.class);
+        verify(failedOrderRepository, times(1)).upsert(failedOrder.capture());
+        verify(failedOrderRepository, never()).save(any(FailedOrder.class));
+        assertEquals("order-009", failedOrder.getValue().getOrderId());
+        assertEquals("customer-001", failedOrder.getValue().getCustomerId());
+        assertEquals(order, failedOrder.getValue().getOrder());
+        assertEquals(6, failedOrder.getValue().getAttempts());
+        assertNull(failedOrder.getValue().getReplayedAt());
+    }
+
+    @Test
+    public void testDeadLetter_PublishFailureIsPropagated() {
+        // Mock the broker rejecting the record while the copy is stored
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+        when(failedOrderRepository.upsert(any(FailedOrder.class))).thenReturn(Mono.empty());
+
+        // Verify the failure reaches the caller so the order is dead-lettered again, the copy stays a single upsert
+        StepVerifier.create(deadLetterService.deadLetter(order, new IllegalStateException("Product API unavailable"), 6))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    private String header(ProducerRecord<String, String> record, String name) {
+        return record.headers().lastHeader(name) == null
+                ? null
+                : new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+}
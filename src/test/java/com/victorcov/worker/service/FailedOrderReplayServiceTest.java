@@ -0,0 +1,103 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.config.KafkaConfig;
+import com.victorcov.worker.entity.FailedOrder;
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.repository.FailedOrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+@ExtendWith(MockitoExtension.class)
+public class FailedOrderReplayServiceTest {
+
+    @Mock
+    private FailedOrderRepository failedOrderRepository;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private ReactiveRedisTemplate<String, Object> redisTemplate;
+
+    @InjectMocks
+    private FailedOrderReplayService failedOrderReplayService;
+
+    @Test
+    public void testReplay_PacedAndLimited() {
+        // Mock three failed orders waiting for replay
+        when(failedOrderRepository.findByReplayedAtIsNullOrderByFailedAtAsc())
+                .thenReturn(Flux.just(failedOrder("order-001"), failedOrder("order-002"), failedOrder("order-003")));
+        when(redisTemplate.delete(anyString())).thenReturn(Mono.just(1L));
+        when(kafkaTemplate.send(eq(KafkaConfig.ORDERS_TOPIC), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(failedOrderRepository.save(any(FailedOrder.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // Two orders per second, at most two of them
+        StepVerifier.withVirtualTime(() -> failedOrderReplayService.replay(2, 2))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(500))
+                .expectNext("order-001")
+                .expectNoEvent(Duration.ofMillis(500))
+                .expectNext("order-002")
+                .verifyComplete();
+
+        // Verify each replayed order got a fresh retry budget and was sent back to the orders topic
+        verify(redisTemplate, times(1)).delete("order:retry:order-001");
+        verify(redisTemplate, times(1)).delete("order:retry:order-002");
+        verify(kafkaTemplate, times(1)).send(eq(KafkaConfig.ORDERS_TOPIC), eq("order-001"), anyString());
+        verify(kafkaTemplate, times(1)).send(eq(KafkaConfig.ORDERS_TOPIC), eq("order-002"), anyString());
+        verify(kafkaTemplate, never()).send(eq(KafkaConfig.ORDERS_TOPIC), eq("order-003"), anyString());
+
+        // Verify both entries were marked as replayed
+        ArgumentCaptor<FailedOrder> saved = ArgumentCaptor.forClass(FailedOrder.class);
+        verify(failedOrderRepository, times(2)).save(saved.capture());
+        saved.getAllValues().forEach(failedOrder -> assertNotNull(failedOrder.getReplayedAt()));
+    }
+
+    @Test
+    public void testReplay_FailedSendIsNotMarkedReplayed() {
+        // Mock the broker rejecting the replayed order
+        when(failedOrderRepository.findByReplayedAtIsNullOrderByFailedAtAsc())
+                .thenReturn(Flux.just(failedOrder("order-001")));
+        when(redisTemplate.delete(anyString())).thenReturn(Mono.just(1L));
+        when(kafkaTemplate.send(eq(KafkaConfig.ORDERS_TOPIC), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+
+        StepVerifier.withVirtualTime(() -> failedOrderReplayService.replay(10, 10))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        // Verify the entry stays pending so the next replay picks it up again
+        verify(failedOrderRepository, never()).save(any(FailedOrder.class));
+    }
+
+    private FailedOrder failedOrder(String orderId) {
+        return FailedOrder.builder()
+                .id("id-" + orderId)
+                .orderId(orderId)
+                .customerId("customer-001")
+                .order(Order.builder().orderId(orderId).customerId("customer-001").build())
+                .failureType("ProductNotFoundException")
+                .attempts(6)
+                .failedAt(Instant.parse("2024-01-01T00:00:00Z"))
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderDeduplicatorTest {
+
+    @Mock
+    private ReactiveStringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private OrderDeduplicator orderDeduplicator;
+
+    private final Order order = Order.builder().orderId("order-009").customerId("customer-001").build();
+
+    @BeforeEach
+    public void setup() {
+        orderDeduplicator = new OrderDeduplicator(stringRedisTemplate, orderRepository, true, 1000, 0.01);
+    }
+
+    @Test
+    public void testFilterNew_NotInFilter() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(0L));
+
+        StepVerifier.create(orderDeduplicator.filterNew(order))
+                .expectNext(order)
+                .verifyComplete();
+
+        // A definite miss never touches Mongo
+        verify(orderRepository, never()).existsByOrderId(anyString());
+    }
+
+    @Test
+    public void testFilterNew_HitConfirmedOrRejected() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(1L));
+        when(orderRepository.existsByOrderId("order-009")).thenReturn(Mono.just(true), Mono.just(false));
+
+        // Persisted order is dropped, a false positive goes through
+        StepVerifier.create(orderDeduplicator.filterNew(order)).verifyComplete();
+        StepVerifier.create(orderDeduplicator.filterNew(order)).expectNext(order).verifyComplete();
+    }
+
+    @Test
+    public void testFilterNew_RedisErrorLetsOrderThrough() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new IllegalStateException("Redis unavailable")));
+
+        StepVerifier.create(orderDeduplicator.filterNew(order))
+                .expectNext(order)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testBitOffsets_StableAndInRange() {
+        List<String> offsets = orderDeduplicator.bitOffsets("order-009");
+
+        // 1000 insertions at 1% give 9586 bits and 7 hash functions
+        assertEquals(7, offsets.size());
+        assertEquals(offsets, orderDeduplicator.bitOffsets("order-009"));
+        offsets.forEach(offset -> assertTrue(Long.parseLong(offset) >= 0 && Long.parseLong(offset) < 9586));
+        assertNotEquals(offsets, orderDeduplicator.bitOffsets("order-010"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.OrderDocument;
+import com.victorcov.worker.entity.OrderItem;
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderQueryServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ProductService productService;
+
+    @InjectMocks
+    private OrderQueryService orderQueryService;
+
+    private final Product laptop = Product.builder().productId("product-101").name("Laptop").price(1200.00).build();
+    private final Product mouse = Product.builder().productId("product-102").name("Mouse").price(25.50).build();
+
+    private final Order order = Order.builder()
+            .orderId("order-009")
+            .customerId("customer-001")
+            .products(List.of(laptop, mouse, mouse))
+            .build();
+
+    @Test
+    public void testFrom_StoresQuantitiesAndTotal() {
+        OrderDocument document = OrderDocument.from(order);
+
+        assertEquals(List.of(
+                OrderItem.builder().productId("product-101").quantity(1).price(1200.00).build(),
+                OrderItem.builder().productId("product-102").quantity(2).price(25.50).build()), document.getItems());
+        assertEquals(1251.00, document.getTotal());
+    }
+
+    @Test
+    public void testFindOrder_JoinsProductsBack() {
+        // Mock a stored order whose product was renamed and repriced since
+        Product renamed = Product.builder().productId("product-101").name("Laptop Pro").price(1300.00).build();
+        storedSlim(OrderDocument.from(order));
+        when(productService.findProducts(List.of("product-101", "product-102")))
+                .thenReturn(Mono.just(Map.of("product-101", renamed, "product-102", mouse)));
+
+        // Verify the names come from the catalog and the prices as they were when the order was saved
+        StepVerifier.create(orderQueryService.findOrder("order-009"))
+                .assertNext(hydrated -> {
+                    assertEquals("customer-001", hydrated.getCustomerId());
+                    assertEquals(List.of(
+                            Product.builder().productId("product-101").name("Laptop Pro").price(1200.00).build(),
+                            mouse, mouse), hydrated.getProducts());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testFindOrder_FullDocumentReturnedAsStored() {
+        // Mock an order stored with the full projection
+        when(orderRepository.findOrderByOrderId(eq("order-009"), any())).thenReturn(Mono.just(order));
+
+        // Verify the stored names are kept and the catalog is not asked
+        StepVerifier.create(orderQueryService.findOrder("order-009"))
+                .expectNext(order)
+                .verifyComplete();
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    public void testFindOrder_ProductLookupFailsKeepsSnapshot() {
+        // Mock the Product API failing while the order is read
+        storedSlim(OrderDocument.from(order));
+        when(productService.findProducts(anyList()))
+                .thenReturn(Mono.error(new IllegalStateException("Product API unavailable")));
+
+        // Verify the order is still returned with the stored price snapshots
+        StepVerifier.create(orderQueryService.findOrder("order-009"))
+                .assertNext(hydrated -> {
+                    assertEquals(3, hydrated.getProducts().size());
+                    assertNull(hydrated.getProducts().get(0).getName());
+                    assertEquals(1200.00, hydrated.getProducts().get(0).getPrice());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testFindOrder_NotFound() {
+        when(orderRepository.findOrderByOrderId(eq("order-404"), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(orderQueryService.findOrder("order-404"))
+                .verifyComplete();
+
+        verifyNoInteractions(productService);
+    }
+
+    // Hands the slim document to the service's join, as the repository does for slim documents
+    private void storedSlim(OrderDocument document) {
+        when(orderRepository.findOrderByOrderId(eq("order-009"), any())).thenAnswer(invocation -> {
+            Function<OrderDocument, Mono<Order>> hydrate = invocation.getArgument(1);
+            return hydrate.apply(document);
+        });
+    }
+}
@@ -8,19 +8,29 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.mockito.ArgumentCaptor;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
 import com.victorcov.worker.entity.Order;
 import com.victorcov.worker.entity.Product;
 import com.victorcov.worker.repository.OrderRepository;
+import com.victorcov.worker.exceptions.ClientInactiveException;
 import com.victorcov.worker.exceptions.ProductNotFoundException;
 import org.springframework.data.redis.core.ReactiveValueOperations;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,13 +49,36 @@ public class OrderServiceTest {
     private ReactiveRedisTemplate<String, Object> redisTemplate;
 
     @Mock
-    private RedissonClient redissonClient;
+    private RedissonReactiveClient redissonReactiveClient;
 
     @Mock
-    private RLock lock;
+    private RLockReactive lock;
     @Mock
     private ReactiveValueOperations<String, Object> valueOperations;
 
+    @Mock
+    private RetryScheduler retryScheduler;
+
+    @Mock
+    private DeadLetterService deadLetterService;
+
+    @Mock
+    private OrderDeduplicator orderDeduplicator;
+
+    @Mock
+    private OrderWriteBehindBuffer orderWriteBehindBuffer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private OrderMetrics orderMetrics = new OrderMetrics(meterRegistry);
+
+    @Spy
+    private OrderTrace orderTrace = new OrderTrace(100);
+
+    @Spy
+    private RetryBackoff retryBackoff = new RetryBackoff(Duration.ofSeconds(1), Duration.ofMinutes(2));
+
     @InjectMocks
     private OrderService orderService;
 
@@ -62,62 +95,114 @@ public class OrderServiceTest {
     }
 
     @Test
-    public void testProcessOrder_LockAcquiredSuccessfully() throws InterruptedException {
+    public void testProcessOrder_LockAcquiredSuccessfully() {
         // Mock successful lock acquisition
-        when(redissonClient.getLock(anyString())).thenReturn(lock);
-        when(lock.tryLock(5, 10, TimeUnit.SECONDS)).thenReturn(true);
-        when(lock.isHeldByCurrentThread()).thenReturn(true); // Mock the thread holding the lock
+        when(redissonReactiveClient.getLock(anyString())).thenReturn(lock);
+        when(lock.tryLock(eq(5L), eq(30L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(true));
+        when(lock.unlock(anyLong())).thenReturn(Mono.empty());
         when(productService.enrichOrderProduct(order)).thenReturn(Mono.just(order));
         when(clientService.validateClientInOrder(order)).thenReturn(Mono.just(order));
-        when(orderRepository.save(order)).thenReturn(Mono.just(order));
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        when(orderRepository.upsert(order)).thenReturn(Mono.empty());
+        when(orderDeduplicator.markPersisted(order)).thenReturn(Mono.empty());
 
         // Call the processOrder method
         orderService.processOrder(order);
 
         // Verify that lock was acquired and processing occurred
-        verify(lock, times(1)).tryLock(5, 10, TimeUnit.SECONDS);
+        ArgumentCaptor<Long> lockOwnerId = ArgumentCaptor.forClass(Long.class);
+        verify(lock, times(1)).tryLock(eq(5L), eq(30L), eq(TimeUnit.SECONDS), lockOwnerId.capture());
         verify(productService, times(1)).enrichOrderProduct(order);
         verify(clientService, times(1)).validateClientInOrder(order);
-        verify(orderRepository, times(1)).save(order);
+        verify(orderRepository, times(1)).upsert(order);
+        verify(orderDeduplicator, times(1)).markPersisted(order);
 
-        // Verify lock release
-        verify(lock, times(1)).unlock();
+        // Verify lock release by the same owner
+        verify(lock, times(1)).unlock(lockOwnerId.getValue().longValue());
     }
 
     @Test
-    public void testProcessOrder_LockNotAcquired() throws InterruptedException {
+    public void testProcessOrder_LockNotAcquired() {
         // Mock unsuccessful lock acquisition
-        when(redissonClient.getLock(anyString())).thenReturn(lock);
-        when(lock.tryLock(5, 10, TimeUnit.SECONDS)).thenReturn(false);
+        when(redissonReactiveClient.getLock(anyString())).thenReturn(lock);
+        when(lock.tryLock(eq(5L), eq(30L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(false));
 
         // Call the method
         orderService.processOrder(order);
 
         // Verify lock acquisition attempt but no processing
-        verify(lock, times(1)).tryLock(5, 10, TimeUnit.SECONDS);
+        verify(lock, times(1)).tryLock(eq(5L), eq(30L), eq(TimeUnit.SECONDS), anyLong());
         verify(productService, never()).enrichOrderProduct(any(Order.class));
         verify(clientService, never()).validateClientInOrder(any(Order.class));
+        verify(lock, never()).unlock(anyLong());
     }
 
     @Test
-    public void testProcessOrder_InterruptedWhileAcquiringLock() throws InterruptedException {
-        // Mock lock acquisition interruption
-        when(redissonClient.getLock(anyString())).thenReturn(lock);
-        when(lock.tryLock(5, 10, TimeUnit.SECONDS)).thenThrow(new InterruptedException());
+    public void testProcessOrderWithLock_HeldUntilPipelineCompletes() {
+        // The save completes only when the test says so
+        Sinks.Empty<Void> saved = Sinks.empty();
+        when(redissonReactiveClient.getLock(anyString())).thenReturn(lock);
+        when(lock.tryLock(eq(5L), eq(30L), eq(TimeUnit.SECONDS), anyLong())).thenReturn(Mono.just(true));
+        when(lock.unlock(anyLong())).thenReturn(Mono.empty());
+        when(productService.enrichOrderProduct(order)).thenReturn(Mono.just(order));
+        when(clientService.validateClientInOrder(order)).thenReturn(Mono.just(order));
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        when(orderRepository.upsert(order)).thenReturn(saved.asMono());
+        when(orderDeduplicator.markPersisted(order)).thenReturn(Mono.empty());
 
-        // Call the method
-        orderService.processOrder(order);
+        StepVerifier.create(orderService.processOrderWithLock(order))
+                .then(() -> verify(lock, never()).unlock(anyLong()))
+                .then(saved::tryEmitEmpty)
+                .expectComplete()
+                .verify();
+
+        // Verify the lock is only released once the order was saved
+        verify(lock, times(1)).unlock(anyLong());
+    }
+
+    @Test
+    public void testProcessOrderLogic_WriteBehindEnabled() {
+        // Mock a valid order with the write-behind buffer enabled
+        when(productService.enrichOrderProduct(order)).thenReturn(Mono.just(order));
+        when(clientService.validateClientInOrder(order)).thenReturn(Mono.just(order));
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        when(orderWriteBehindBuffer.isEnabled()).thenReturn(true);
+        when(orderWriteBehindBuffer.save(order)).thenReturn(Mono.empty());
+        when(orderDeduplicator.markPersisted(order)).thenReturn(Mono.empty());
 
-        // Verify thread interruption handling
-        verify(lock, never()).unlock();
-        assertTrue(Thread.currentThread().isInterrupted());
+        StepVerifier.create(orderService.processOrderLogic(order))
+                .expectComplete()
+                .verify();
+
+        // Verify the order went through the buffer instead of its own upsert
+        verify(orderWriteBehindBuffer, times(1)).save(order);
+        verify(orderRepository, never()).upsert(any(Order.class));
+        assertEquals(1.0, meterRegistry.get("order.processed").tag("outcome", "saved").counter().count());
+    }
+
+    @Test
+    public void testProcessOrderWithLock_LockError() {
+        // Mock Redis failing while acquiring the lock
+        when(redissonReactiveClient.getLock(anyString())).thenReturn(lock);
+        when(lock.tryLock(eq(5L), eq(30L), eq(TimeUnit.SECONDS), anyLong()))
+                .thenReturn(Mono.error(new IllegalStateException("Redis unavailable")));
+
+        StepVerifier.create(orderService.processOrderWithLock(order))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        // Verify no processing and no release of a lock that was never held
+        verify(productService, never()).enrichOrderProduct(any(Order.class));
+        verify(lock, never()).unlock(anyLong());
     }
 
     @Test
     public void testProcessOrderLogic_Successful() {
         when(productService.enrichOrderProduct(order)).thenReturn(Mono.just(order));
         when(clientService.validateClientInOrder(order)).thenReturn(Mono.just(order));
-        when(orderRepository.save(order)).thenReturn(Mono.just(order));
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        when(orderRepository.upsert(order)).thenReturn(Mono.empty());
+        when(orderDeduplicator.markPersisted(order)).thenReturn(Mono.empty());
 
         StepVerifier.create(orderService.processOrderLogic(order))
                 .expectComplete()
@@ -125,7 +210,14 @@ public class OrderServiceTest {
 
         verify(productService, times(1)).enrichOrderProduct(order);
         verify(clientService, times(1)).validateClientInOrder(order);
-        verify(orderRepository, times(1)).save(order);
+        verify(orderRepository, times(1)).upsert(order);
+        verify(orderDeduplicator, times(1)).markPersisted(order);
+
+        // Verify every stage was timed and the outcome counted
+        assertEquals(1, meterRegistry.get("order.stage").tag("stage", "product_enrichment").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("order.stage").tag("stage", "client_validation").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("order.stage").tag("stage", "save").tag("outcome", "success").timer().count());
+        assertEquals(1.0, meterRegistry.get("order.processed").tag("outcome", "saved").counter().count());
     }
 
 
@@ -137,9 +229,13 @@ public class OrderServiceTest {
 
         // Mock increment behavior to avoid NPE
         when(valueOperations.increment(anyString())).thenReturn(Mono.just(1L));
-        // Mock product enrichment failure
+        when(retryScheduler.schedule(eq(order), any(Duration.class))).thenReturn(Mono.empty());
+        // Mock product enrichment failure while client validation is still pending
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        PublisherProbe<Order> clientValidation = PublisherProbe.of(Mono.never());
         when(productService.enrichOrderProduct(order))
                 .thenReturn(Mono.error(new ProductNotFoundException("Product not found")));
+        when(clientService.validateClientInOrder(order)).thenReturn(clientValidation.mono());
 
         // Run processOrderLogic and expect completion
         StepVerifier.create(orderService.processOrderLogic(order))
@@ -147,11 +243,158 @@ public class OrderServiceTest {
                 .verify();
 
         // Verify interactions
-        verify(productService, times(2)).enrichOrderProduct(order);
-        verify(clientService, never()).validateClientInOrder(any(Order.class));
-        verify(orderRepository, never()).save(any(Order.class));
+        verify(productService, times(1)).enrichOrderProduct(order);
+        clientValidation.assertWasCancelled();
+        verify(orderRepository, never()).upsert(any(Order.class));
+
+        // Verify that retry logic is called and the order is parked in the retry queue
+        verify(valueOperations, times(1)).increment(anyString());
+        ArgumentCaptor<Duration> backOff = ArgumentCaptor.forClass(Duration.class);
+        verify(retryScheduler, times(1)).schedule(eq(order), backOff.capture());
+        assertTrue(backOff.getValue().compareTo(Duration.ofSeconds(1)) >= 0 && backOff.getValue().compareTo(Duration.ofSeconds(2)) <= 0,
+                "First retry is jittered within 1-2s, was " + backOff.getValue());
+
+        // Verify the failure is visible per stage and per cause
+        assertEquals(1, meterRegistry.get("order.stage").tag("stage", "product_enrichment")
+                .tag("outcome", "ProductNotFoundException").timer().count());
+        assertEquals(1, meterRegistry.get("order.stage").tag("stage", "client_validation").tag("outcome", "cancelled").timer().count());
+        assertEquals(1.0, meterRegistry.get("order.processed").tag("outcome", "retry_scheduled")
+                .tag("cause", "ProductNotFoundException").counter().count());
+    }
+
+    @Test
+    public void testProcessOrderLogic_ClientInactiveCancelsEnrichment() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString())).thenReturn(Mono.just(6L));
+        when(deadLetterService.deadLetter(eq(order), any(ClientInactiveException.class), eq(6L))).thenReturn(Mono.empty());
+
+        // Client validation fails while product enrichment is still pending
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        PublisherProbe<Order> productEnrichment = PublisherProbe.of(Mono.never());
+        when(productService.enrichOrderProduct(order)).thenReturn(productEnrichment.mono());
+        when(clientService.validateClientInOrder(order))
+                .thenReturn(Mono.error(new ClientInactiveException("Client inactive")));
+
+        StepVerifier.create(orderService.processOrderLogic(order))
+                .expectComplete()
+                .verify();
+
+        // Verify the enrichment was cancelled and nothing was saved
+        productEnrichment.assertWasCancelled();
+        verify(orderRepository, never()).upsert(any(Order.class));
+        verify(valueOperations, times(1)).increment(anyString());
+
+        // Verify the order went to the dead-letter store once its retries were used up
+        verify(deadLetterService, times(1)).deadLetter(eq(order), any(ClientInactiveException.class), eq(6L));
+        verify(retryScheduler, never()).schedule(any(Order.class), any(Duration.class));
+        assertEquals(1.0, meterRegistry.get("order.processed").tag("outcome", "max_retries_reached")
+                .tag("cause", "ClientInactiveException").counter().count());
+    }
+
+    @Test
+    public void testProcessOrderLogic_OpenCircuitKeepsRetryBudget() {
+        when(retryScheduler.schedule(eq(order), any(Duration.class))).thenReturn(Mono.empty());
+        // Mock the Product API circuit rejecting the call before it is made
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        when(productService.enrichOrderProduct(order)).thenReturn(Mono.error(
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("productApi"))));
+        when(clientService.validateClientInOrder(order)).thenReturn(Mono.just(order));
+
+        StepVerifier.create(orderService.processOrderLogic(order))
+                .expectComplete()
+                .verify();
+
+        // Verify the order is rescheduled without counting an attempt, so it is never dead-lettered for the outage
+        verify(redisTemplate, never()).opsForValue();
+        verify(retryScheduler, times(1)).schedule(eq(order), any(Duration.class));
+        verify(deadLetterService, never()).deadLetter(any(Order.class), any(Throwable.class), anyLong());
+        assertEquals(1.0, meterRegistry.get("order.processed").tag("outcome", "retry_scheduled")
+                .tag("cause", "CallNotPermittedException").counter().count());
+    }
+
+    @Test
+    public void testProcessOrderLogic_RetryNotStoredPropagatesError() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString())).thenReturn(Mono.error(new IllegalStateException("Redis unavailable")));
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.just(order));
+        when(productService.enrichOrderProduct(order))
+                .thenReturn(Mono.error(new ProductNotFoundException("Product not found")));
+        when(clientService.validateClientInOrder(order)).thenReturn(Mono.just(order));
+
+        // The failure surfaces so the record is not acknowledged without a stored retry
+        StepVerifier.create(orderService.processOrderLogic(order))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(retryScheduler, never()).schedule(any(Order.class), any(Duration.class));
+    }
+
+    @Test
+    public void testProcessOrders_BulkUpsert() {
+        Product laptop = Product.builder().productId("product-101").name("Laptop").price(1200.00).build();
+        when(productService.findProducts(List.of("product-101", "product-1002")))
+                .thenReturn(Mono.just(Map.of("product-101", laptop)));
+        when(productService.applyProducts(eq(order), anyMap())).thenReturn(Mono.just(order));
+        when(clientService.validateClient("customer-001")).thenReturn(Mono.empty());
+        when(orderDeduplicator.filterNew(List.of(order))).thenReturn(Mono.just(List.of(order)));
+        when(orderRepository.upsertAll(List.of(order))).thenReturn(Mono.empty());
+        when(orderDeduplicator.markPersisted(List.of(order))).thenReturn(Mono.empty());
+
+        StepVerifier.create(orderService.processOrders(List.of(order)))
+                .expectComplete()
+                .verify();
+
+        // Verify a single lookup per dependency and a single bulk write for the batch
+        verify(productService, times(1)).findProducts(anyCollection());
+        verify(clientService, times(1)).validateClient("customer-001");
+        verify(orderRepository, times(1)).upsertAll(List.of(order));
+        verify(orderRepository, never()).upsert(any(Order.class));
+    }
+
+    @Test
+    public void testProcessOrders_RetryNotStoredKeepsOtherOrdersOfCustomer() {
+        Order other = Order.builder()
+                .orderId("order-010")
+                .customerId("customer-001")
+                .products(List.of(Product.builder().productId("product-101").build()))
+                .build();
+        when(productService.findProducts(anyCollection())).thenReturn(Mono.just(Map.of()));
+        when(clientService.validateClient("customer-001")).thenReturn(Mono.empty());
+        when(orderDeduplicator.filterNew(List.of(order, other))).thenReturn(Mono.just(List.of(order, other)));
+        when(productService.applyProducts(eq(order), anyMap()))
+                .thenReturn(Mono.error(new ProductNotFoundException("Product not found")));
+        // The other order may be cancelled before it is enriched once the failure surfaces
+        lenient().when(productService.applyProducts(eq(other), anyMap())).thenReturn(Mono.just(other));
+
+        // Mock the retry counter failing for the order that could not be enriched
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment("order:retry:order-009"))
+                .thenReturn(Mono.error(new IllegalStateException("Redis unavailable")));
 
-        // Verify that retry logic is called
+        // The failure surfaces so the batch is not acknowledged without a stored retry
+        StepVerifier.create(orderService.processOrders(List.of(order, other)))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        // Verify only the failed order asked for a retry and the rest of the customer's orders were not rescheduled
         verify(valueOperations, times(1)).increment(anyString());
+        verify(valueOperations, never()).increment("order:retry:order-010");
+        verify(retryScheduler, never()).schedule(any(Order.class), any(Duration.class));
+    }
+
+    @Test
+    public void testProcessOrderLogic_DuplicateSkipped() {
+        // The order was already persisted by an earlier delivery
+        when(orderDeduplicator.filterNew(order)).thenReturn(Mono.empty());
+
+        StepVerifier.create(orderService.processOrderLogic(order))
+                .expectComplete()
+                .verify();
+
+        // Verify no API calls, no write and no retry
+        verify(productService, never()).enrichOrderProduct(any(Order.class));
+        verify(clientService, never()).validateClientInOrder(any(Order.class));
+        verify(orderRepository, never()).upsert(any(Order.class));
+        verify(redisTemplate, never()).opsForValue();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+public class OrderTraceTest {
+
+    private final OrderTrace orderTrace = new OrderTrace(2);
+
+    @Test
+    public void testLog_InfoOnlyForTracedOrders() {
+        Logger logger = mock(Logger.class);
+        orderTrace.enable("order-009");
+
+        orderTrace.log(logger, "order-009", "Order successfully saved with ID: {}", "order-009");
+        orderTrace.log(logger, "order-010", "Order successfully saved with ID: {}", "order-010");
+
+        // Untraced orders stay at DEBUG, which is disabled here
+        verify(logger, times(1)).info(anyString(), any(Object[].class));
+        verify(logger, never()).debug(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void testEnable_LimitedNumberOfOrders() {
+        assertTrue(orderTrace.enable("order-009"));
+        assertTrue(orderTrace.enable("order-010"));
+        assertFalse(orderTrace.enable("order-011"));
+
+        orderTrace.disable("order-009");
+        assertTrue(orderTrace.enable("order-011"));
+        assertEquals(2, orderTrace.tracedOrderIds().size());
+        assertFalse(orderTrace.isTraced("order-009"));
+    }
+}
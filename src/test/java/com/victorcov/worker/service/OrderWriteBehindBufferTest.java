@@ -0,0 +1,152 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Order;
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderWriteBehindBufferTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OrderWriteBehindBuffer buffer;
+
+    private final Order first = order("order-001");
+    private final Order second = order("order-002");
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new OrderWriteBehindBuffer(orderRepository, meterRegistry);
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(buffer, "maxDelayMs", 50L);
+        ReflectionTestUtils.setField(buffer, "capacity", 16);
+        ReflectionTestUtils.setField(buffer, "flushConcurrency", 1);
+        ReflectionTestUtils.setField(buffer, "kafkaMode", "reactive");
+        buffer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        buffer.stop();
+    }
+
+    @Test
+    public void testSave_CompletesOnlyAfterSharedFlush() {
+        // The bulk upsert is acknowledged only when the test says so
+        Sinks.Empty<Void> flushed = Sinks.empty();
+        when(orderRepository.upsertAll(List.of(first, second))).thenReturn(flushed.asMono());
+
+        StepVerifier.create(Mono.when(buffer.save(first), buffer.save(second)))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(flushed::tryEmitEmpty)
+                .verifyComplete();
+
+        // Verify both orders were written by one bulk upsert
+        verify(orderRepository, times(1)).upsertAll(anyList());
+        verify(orderRepository, never()).upsert(any(Order.class));
+        assertEquals(2.0, meterRegistry.get("order.write_behind.flush.size").summary().totalAmount());
+        assertEquals(0.0, meterRegistry.get("order.write_behind.pending").gauge().value());
+    }
+
+    @Test
+    public void testSave_FlushesPartialBatchAfterDelay() {
+        when(orderRepository.upsertAll(List.of(first))).thenReturn(Mono.empty());
+
+        StepVerifier.create(buffer.save(first))
+                .verifyComplete();
+
+        verify(orderRepository, times(1)).upsertAll(List.of(first));
+    }
+
+    @Test
+    public void testSave_FlushErrorFailsEveryOrderInBatch() {
+        when(orderRepository.upsertAll(List.of(first, second)))
+                .thenReturn(Mono.error(new DataAccessResourceFailureException("MongoDB unavailable")));
+
+        StepVerifier.create(Mono.zipDelayError(
+                        buffer.save(first).thenReturn("first"),
+                        buffer.save(second).thenReturn("second")))
+                .expectErrorSatisfies(e -> assertEquals(2, e.getSuppressed().length))
+                .verify();
+    }
+
+    @Test
+    public void testSave_ConcurrentCallersAllFlushed() {
+        when(orderRepository.upsertAll(anyList())).thenReturn(Mono.empty());
+
+        // Saves from many threads at once, as from the Netty and Redisson event loops
+        StepVerifier.create(Flux.range(0, 16)
+                        .flatMap(i -> buffer.save(order("order-" + i)).subscribeOn(Schedulers.parallel()))
+                        .then())
+                .verifyComplete();
+
+        // Verify no order was lost or rejected while the callers were competing for the buffer
+        assertEquals(16.0, meterRegistry.get("order.write_behind.flush.size").summary().totalAmount());
+    }
+
+    @Test
+    public void testSave_RejectedWhenFull() {
+        ReflectionTestUtils.setField(buffer, "capacity", 1);
+        when(orderRepository.upsertAll(anyList())).thenReturn(Mono.never());
+
+        buffer.save(first).subscribe();
+
+        // Verify the order beyond the capacity fails at once so it goes through the retry handling
+        StepVerifier.create(buffer.save(second))
+                .expectErrorMessage("Write-behind buffer rejected order order-002: full")
+                .verify();
+    }
+
+    @Test
+    public void testSave_RacingStopIsFlushedOrRejected() {
+        when(orderRepository.upsertAll(anyList())).thenReturn(Mono.empty());
+
+        // Saves keep arriving from several threads while the buffer shuts down
+        Flux<Void> saves = Flux.range(0, 64)
+                .flatMap(i -> buffer.save(order("order-" + i)).subscribeOn(Schedulers.parallel())
+                        .onErrorResume(e -> {
+                            assertTrue(e.getMessage().endsWith("stopped"), e.getMessage());
+                            return Mono.empty();
+                        }));
+        Mono<Void> stop = Mono.<Void>fromRunnable(buffer::stop).subscribeOn(Schedulers.parallel());
+
+        // Verify every caller gets an answer, none is left waiting on an order the stopped buffer dropped
+        StepVerifier.create(Flux.merge(saves, stop).then())
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private static Order order(String orderId) {
+        return Order.builder()
+                .orderId(orderId)
+                .customerId("customer-001")
+                .products(List.of(Product.builder().productId("product-101").name("Laptop").price(1200.00).build()))
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductCatalogCacheTest {
+
+    @Mock
+    private ProductRedisCache productRedisCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProductCatalogCache productCatalogCache;
+
+    private final Product laptop = Product.builder().productId("product-101").name("Laptop").price(1200.00).build();
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        productCatalogCache = new ProductCatalogCache(productRedisCache, meterRegistry,
+                100, Duration.ofMinutes(10), Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void testFindProducts_HitSkipsNetwork() {
+        when(productRedisCache.findProducts(Set.of("product-101", "product-1002")))
+                .thenReturn(Mono.just(Map.of("product-101", laptop)));
+
+        // First lookup loads both IDs, second one is served from the cache
+        StepVerifier.create(productCatalogCache.findProducts(List.of("product-101", "product-1002")))
+                .expectNext(Map.of("product-101", laptop))
+                .verifyComplete();
+        StepVerifier.create(productCatalogCache.findProducts(List.of("product-101", "product-1002")))
+                .expectNext(Map.of("product-101", laptop))
+                .verifyComplete();
+
+        // Verify the missing product was negatively cached as well
+        verify(productRedisCache, times(1)).findProducts(anyCollection());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void testFindProducts_FailedLoadIsNotCached() {
+        when(productRedisCache.findProducts(Set.of("product-101")))
+                .thenReturn(Mono.error(new IllegalStateException("Product API unavailable")))
+                .thenReturn(Mono.just(Map.of("product-101", laptop)));
+
+        StepVerifier.create(productCatalogCache.findProducts(List.of("product-101")))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(productCatalogCache.findProducts(List.of("product-101")))
+                .expectNext(Map.of("product-101", laptop))
+                .verifyComplete();
+
+        verify(productRedisCache, times(2)).findProducts(anyCollection());
+    }
+
+    @Test
+    public void testFindProducts_RefreshPicksUpPriceChange() throws InterruptedException {
+        productCatalogCache = new ProductCatalogCache(productRedisCache, meterRegistry,
+                100, Duration.ofMinutes(10), Duration.ofMillis(1), Duration.ofSeconds(30));
+        Product repriced = Product.builder().productId("product-101").name("Laptop").price(999.00).build();
+        when(productRedisCache.findProducts(Set.of("product-101")))
+                .thenReturn(Mono.just(Map.of("product-101", laptop)));
+        when(productRedisCache.refreshProducts(Set.of("product-101")))
+                .thenReturn(Mono.just(Map.of("product-101", repriced)));
+
+        StepVerifier.create(productCatalogCache.findProducts(List.of("product-101")))
+                .expectNext(Map.of("product-101", laptop))
+                .verifyComplete();
+        Thread.sleep(10);
+        // The read past the refresh age still gets the old price and starts the reload
+        StepVerifier.create(productCatalogCache.findProducts(List.of("product-101")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Verify the reload bypassed the Redis entry and the new price is served afterwards
+        verify(productRedisCache, timeout(1000)).refreshProducts(Set.of("product-101"));
+        StepVerifier.create(productCatalogCache.findProducts(List.of("product-101")))
+                .expectNext(Map.of("product-101", repriced))
+                .verifyComplete();
+        verify(productRedisCache, times(1)).findProducts(anyCollection());
+    }
+}
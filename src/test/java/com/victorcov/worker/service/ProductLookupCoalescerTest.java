@@ -0,0 +1,137 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.client.ProductApiClient;
+import com.victorcov.worker.entity.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductLookupCoalescerTest {
+
+    @Mock
+    private ProductApiClient productApiClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProductLookupCoalescer coalescer;
+
+    private final Product laptop = Product.builder().productId("product-101").name("Laptop").price(1200.00).build();
+    private final Product phone = Product.builder().productId("product-102").name("Smartphone").price(800.00).build();
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ProductLookupCoalescer(productApiClient, meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "windowMs", 50L);
+        ReflectionTestUtils.setField(coalescer, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(coalescer, "maxIdsPerRequest", 2);
+        coalescer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        coalescer.stop();
+    }
+
+    @Test
+    public void testFindProducts_ConcurrentLookupsShareOneCall() {
+        when(productApiClient.findProducts(Set.of("product-101", "product-102")))
+                .thenReturn(Mono.just(Map.of("product-101", laptop, "product-102", phone)));
+
+        // Two orders ask for overlapping products within the same window
+        Mono<List<Map<String, Product>>> both = Mono.zip(
+                coalescer.findProducts(List.of("product-101")),
+                coalescer.findProducts(List.of("product-101", "product-102"))
+        ).map(tuple -> List.of(tuple.getT1(), tuple.getT2()));
+
+        StepVerifier.create(both)
+                .assertNext(results -> {
+                    assertEquals(Map.of("product-101", laptop), results.get(0));
+                    assertEquals(Map.of("product-101", laptop, "product-102", phone), results.get(1));
+                })
+                .verifyComplete();
+
+        // Verify a single deduplicated call and the coalescing ratio
+        verify(productApiClient, times(1)).findProducts(anyCollection());
+        assertEquals(1.5, meterRegistry.get("product.lookup.coalescing.ratio").gauge().value());
+    }
+
+    @Test
+    public void testFindProducts_MergedIdsSplitAcrossRequests() {
+        Product tablet = Product.builder().productId("product-103").name("Tablet").price(300.00).build();
+        when(productApiClient.findProducts(List.of("product-101", "product-102")))
+                .thenReturn(Mono.just(Map.of("product-101", laptop, "product-102", phone)));
+        when(productApiClient.findProducts(List.of("product-103")))
+                .thenReturn(Mono.just(Map.of("product-103", tablet)));
+
+        // Three orders in the same window ask for more IDs than one request may carry
+        Mono<List<Map<String, Product>>> all = Mono.zip(
+                coalescer.findProducts(List.of("product-101")),
+                coalescer.findProducts(List.of("product-102")),
+                coalescer.findProducts(List.of("product-103"))
+        ).map(tuple -> List.of(tuple.getT1(), tuple.getT2(), tuple.getT3()));
+
+        StepVerifier.create(all)
+                .assertNext(results -> {
+                    assertEquals(Map.of("product-101", laptop), results.get(0));
+                    assertEquals(Map.of("product-102", phone), results.get(1));
+                    assertEquals(Map.of("product-103", tablet), results.get(2));
+                })
+                .verifyComplete();
+
+        // Verify the merged IDs went out in two requests of at most two IDs
+        verify(productApiClient, times(2)).findProducts(anyCollection());
+    }
+
+    @Test
+    public void testFindProducts_BatchLookupSplitAcrossRequests() {
+        Product tablet = Product.builder().productId("product-103").name("Tablet").price(300.00).build();
+        Product monitor = Product.builder().productId("product-104").name("Monitor").price(200.00).build();
+        Product keyboard = Product.builder().productId("product-105").name("Keyboard").price(50.00).build();
+        Map<String, Product> catalog = Map.of("product-101", laptop, "product-102", phone,
+                "product-103", tablet, "product-104", monitor, "product-105", keyboard);
+        when(productApiClient.findProducts(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            assertTrue(ids.size() <= 2);
+            return Mono.just(ids.stream().collect(Collectors.toMap(Function.identity(), catalog::get)));
+        });
+
+        // A batch-mode poll asks for every distinct product ID of its records in one lookup
+        StepVerifier.create(coalescer.findProducts(
+                        List.of("product-101", "product-102", "product-103", "product-104", "product-105")))
+                .assertNext(products -> assertEquals(catalog, products))
+                .verifyComplete();
+
+        // Verify the lookup went out in three requests of at most two IDs
+        verify(productApiClient, times(3)).findProducts(anyCollection());
+    }
+
+    @Test
+    public void testFindProducts_ErrorIsFannedOut() {
+        when(productApiClient.findProducts(anyCollection()))
+                .thenReturn(Mono.error(new IllegalStateException("Product API unavailable")));
+
+        StepVerifier.create(coalescer.findProducts(List.of("product-101")))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,131 @@
+package com.victorcov.worker.service;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.victorcov.worker.entity.Product;
+import com.victorcov.worker.serialization.ProductRedisSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductRedisCacheTest {
+
+    @Mock
+    private ReactiveRedisTemplate<String, Product> productRedisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, Product> valueOperations;
+
+    @Mock
+    private ProductLookupCoalescer productLookupCoalescer;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProductRedisCache productRedisCache;
+
+    private final Product laptop = Product.builder().productId("product-101").name("Laptop").price(1200.00).build();
+    private final Product mouse = Product.builder().productId("product-102").name("Mouse").price(25.50).build();
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        productRedisCache = new ProductRedisCache(productRedisTemplate, productLookupCoalescer, meterRegistry,
+                true, Duration.ofMinutes(30));
+    }
+
+    @Test
+    public void testFindProducts_AllCachedSkipsProductApi() {
+        // Mock both products being found in Redis
+        when(productRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(List.of("product:product-101", "product:product-102")))
+                .thenReturn(Mono.just(List.of(laptop, mouse)));
+
+        StepVerifier.create(productRedisCache.findProducts(List.of("product-101", "product-102")))
+                .expectNext(Map.of("product-101", laptop, "product-102", mouse))
+                .verifyComplete();
+
+        // Verify the Product API was not called and both IDs counted as hits
+        verifyNoInteractions(productLookupCoalescer);
+        assertEquals(2.0, meterRegistry.get("product.cache.redis").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    public void testFindProducts_MissesFetchedAndStored() {
+        // Mock one product missing in Redis and returned by the Product API
+        when(productRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(List.of("product:product-101", "product:product-102")))
+                .thenReturn(Mono.just(Arrays.asList(laptop, null)));
+        when(productLookupCoalescer.findProducts(List.of("product-102")))
+                .thenReturn(Mono.just(Map.of("product-102", mouse)));
+        when(valueOperations.set("product:product-102", mouse, Duration.ofMinutes(30))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(productRedisCache.findProducts(List.of("product-101", "product-102")))
+                .expectNext(Map.of("product-101", laptop, "product-102", mouse))
+                .verifyComplete();
+
+        // Verify only the missing product was stored back in Redis
+        verify(valueOperations).set("product:product-102", mouse, Duration.ofMinutes(30));
+        assertEquals(1.0, meterRegistry.get("product.cache.redis").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    public void testFindProducts_RedisDownFallsBackToProductApi() {
+        // Mock Redis refusing both the lookup and the write
+        when(productRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(List.of("product:product-101")))
+                .thenReturn(Mono.error(new RedisConnectionFailureException("Connection refused")));
+        when(productLookupCoalescer.findProducts(List.of("product-101")))
+                .thenReturn(Mono.just(Map.of("product-101", laptop)));
+        when(valueOperations.set("product:product-101", laptop, Duration.ofMinutes(30)))
+                .thenReturn(Mono.error(new RedisConnectionFailureException("Connection refused")));
+
+        // Verify the product still comes from the Product API
+        StepVerifier.create(productRedisCache.findProducts(List.of("product-101")))
+                .expectNext(Map.of("product-101", laptop))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testRefreshProducts_BypassesRedisAndStoresFreshProduct() {
+        Product repriced = Product.builder().productId("product-101").name("Laptop").price(999.00).build();
+        when(productRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(productLookupCoalescer.findProducts(List.of("product-101")))
+                .thenReturn(Mono.just(Map.of("product-101", repriced)));
+        when(valueOperations.set("product:product-101", repriced, Duration.ofMinutes(30))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(productRedisCache.refreshProducts(List.of("product-101")))
+                .expectNext(Map.of("product-101", repriced))
+                .verifyComplete();
+
+        // Verify the cached entry was not read and was overwritten for the other replicas
+        verify(valueOperations, never()).multiGet(anyList());
+        verify(valueOperations).set("product:product-101", repriced, Duration.ofMinutes(30));
+    }
+
+    @Test
+    public void testSerializer_RoundTrip() {
+        ProductRedisSerializer serializer = new ProductRedisSerializer();
+        Product unnamed = Product.builder().productId("product-1002").build();
+
+        assertEquals(laptop, serializer.deserialize(serializer.serialize(laptop)));
+        assertEquals(unnamed, serializer.deserialize(serializer.serialize(unnamed)));
+        // Entries written with an unknown layout are treated as misses
+        assertNull(serializer.deserialize(new byte[]{2, 0}));
+        assertNull(serializer.deserialize("{\"productId\":\"product-101\"}".getBytes()));
+    }
+}
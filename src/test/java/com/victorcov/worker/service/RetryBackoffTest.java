@@ -0,0 +1,34 @@
+package com.victorcov.worker.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+public class RetryBackoffTest {
+
+    private final RetryBackoff retryBackoff = new RetryBackoff(Duration.ofSeconds(1), Duration.ofSeconds(30));
+
+    @Test
+    public void testNext_JitteredWithinDoublingWindow() {
+        Set<Duration> delays = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Duration delay = retryBackoff.next(3);
+            // Attempt 3 waits between 4s and 8s
+            assertTrue(delay.toMillis() >= 4000 && delay.toMillis() <= 8000, "Out of range: " + delay);
+            delays.add(delay);
+        }
+        // Verify the delays are spread instead of all the same
+        assertTrue(delays.size() > 1);
+    }
+
+    @Test
+    public void testNext_CappedAtMax() {
+        assertEquals(30_000, retryBackoff.ceilingMillis(5));
+        assertEquals(30_000, retryBackoff.ceilingMillis(1_000));
+        assertTrue(retryBackoff.next(1_000).toMillis() <= 30_000);
+    }
+}